@@ -0,0 +1,321 @@
+package com.shop.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load driver for the purchase flow. Each virtual user registers,
+ * logs in, then repeats until the run ends:
+ *
+ *   browse        GET  /server/garments/list
+ *   cart          POST /server/user/cart
+ *   create-order  POST /server/user/payment/create-order
+ *   (pay)         POST {simulator}/razorpay/sim/pay          — not timed, stands in for the checkout modal
+ *   verify        POST /server/user/payment/verify
+ *   webhook       POST /server/webhook/razorpay
+ *
+ * and reports throughput and p50 / p99 / p999 latency per step, plus the
+ * whole purchase end to end. Samples from the warm-up period are dropped.
+ *
+ * Start the app with the loadtest profile first (see the loadtest profile in
+ * pom.xml), then run this class with key=value arguments:
+ *   base-url       app root                         (http://localhost:8080)
+ *   simulator-url  ProviderSimulator root           (http://localhost:18090)
+ *   users          concurrent virtual users         (50)
+ *   duration       measured seconds                 (60)
+ *   warmup         seconds before measuring         (10)
+ *   think-ms       pause between purchases per user (0)
+ *   admin-user / admin-password   used to restock the first page of the catalog
+ *   restock        units per size to set before the run, 0 to skip (100000)
+ */
+public final class LoadDriver {
+
+    private static final String[] STEPS = { "browse", "cart", "create-order", "verify", "webhook", "purchase" };
+    private static final String USER_PASSWORD = "Loadtest@123";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, String> options;
+    private final String baseUrl;
+    private final String simulatorUrl;
+    private final HttpClient http;
+    private final Map<String, StepStats> stats = new LinkedHashMap<>();
+
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    private LoadDriver(Map<String, String> options) {
+        this.options      = options;
+        this.baseUrl      = option("base-url", "http://localhost:8080");
+        this.simulatorUrl = option("simulator-url", "http://localhost:18090");
+        this.http         = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (String step : STEPS) stats.put(step, new StepStats(step));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Expected key=value, got " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    private void run() throws Exception {
+        int users       = Integer.parseInt(option("users", "50"));
+        int durationSec = Integer.parseInt(option("duration", "60"));
+        int warmupSec   = Integer.parseInt(option("warmup", "10"));
+        long thinkMs    = Long.parseLong(option("think-ms", "0"));
+
+        List<JsonNode> catalog = restock(Integer.parseInt(option("restock", "100000")));
+        if (catalog.isEmpty()) throw new IllegalStateException("No active garments to buy");
+
+        long runId = System.currentTimeMillis() % 100_000;   // keeps usernames and mobile numbers unique per run
+        System.out.printf("Run %d: %d users, %d s warm-up, %d s measured, %d garments against %s%n",
+                runId, users, warmupSec, durationSec, catalog.size(), baseUrl);
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> logins = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                int n = i;
+                logins.add(pool.submit(() -> signUp(runId, n)));
+            }
+            List<String> tokens = new ArrayList<>();
+            for (Future<String> f : logins) tokens.add(f.get());
+
+            long start   = System.nanoTime();
+            measureFrom  = start + TimeUnit.SECONDS.toNanos(warmupSec);
+            measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSec);
+            for (String token : tokens) {
+                pool.submit(() -> shop(token, catalog, thinkMs));
+            }
+        }
+        report(durationSec);
+    }
+
+    // ── Virtual user ──────────────────────────────────────────
+
+    private String signUp(long runId, int n) throws Exception {
+        String username = "lt_" + runId + "_" + n;
+        Map<String, Object> register = new LinkedHashMap<>();
+        register.put("username",     username);
+        register.put("email",        username + "@loadtest.local");
+        register.put("mobileNumber", String.format("9%09d", runId * 10_000 + n));
+        register.put("password",     USER_PASSWORD);
+        register.put("gender",       1);
+        send("POST", baseUrl + "/server/user/register", null, register);
+        return login(username, USER_PASSWORD);
+    }
+
+    private void shop(String token, List<JsonNode> catalog, long thinkMs) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < measureUntil) {
+            long purchaseStart = System.nanoTime();
+            try {
+                JsonNode page = timed("browse", () -> send("GET", baseUrl + "/server/garments/list?limit=24", token, null));
+                JsonNode items = page.path("items");
+                JsonNode garment = items.size() > 0
+                        ? items.get(random.nextInt(items.size()))
+                        : catalog.get(random.nextInt(catalog.size()));
+                String[] sizes = garment.path("sizes").asText("M").split(",");
+                int quantity = 1 + random.nextInt(2);
+
+                Map<String, Object> cart = new LinkedHashMap<>();
+                cart.put("garmentId", garment.path("id").asLong());
+                cart.put("size",      sizes[random.nextInt(sizes.length)].trim());
+                cart.put("quantity",  quantity);
+                timed("cart", () -> send("POST", baseUrl + "/server/user/cart", token, cart));
+
+                long amountInPaise = Math.max(100, garment.path("basePrice").asLong(1) * 100 * quantity);
+                JsonNode order = timed("create-order", () -> send("POST", baseUrl + "/server/user/payment/create-order",
+                        token, Map.of("amountInPaise", amountInPaise)));
+                String razorpayOrderId = order.path("razorpayOrderId").asText();
+
+                JsonNode payment = send("POST", simulatorUrl + "/razorpay/sim/pay", null,
+                        Map.of("order_id", razorpayOrderId, "amount", order.path("amount").asLong(amountInPaise)));
+
+                Map<String, Object> verify = new LinkedHashMap<>();
+                verify.put("razorpayOrderId",   razorpayOrderId);
+                verify.put("razorpayPaymentId", payment.path("razorpay_payment_id").asText());
+                verify.put("razorpaySignature", payment.path("razorpay_signature").asText());
+                verify.put("shippingName",      "Load Test");
+                verify.put("shippingAddress",   "1 Test Street");
+                verify.put("shippingCity",      "Chennai");
+                verify.put("shippingPincode",   "600001");
+                verify.put("shippingPhone",     "9876543210");
+                timed("verify", () -> send("POST", baseUrl + "/server/user/payment/verify", token, verify));
+
+                timed("webhook", () -> sendRaw(HttpRequest.newBuilder(URI.create(baseUrl + "/server/webhook/razorpay"))
+                        .header("Content-Type", "application/json")
+                        .header("X-Razorpay-Signature", payment.path("webhook_signature").asText())
+                        .header("X-Razorpay-Event-Id", payment.path("webhook_event_id").asText())
+                        .POST(HttpRequest.BodyPublishers.ofString(payment.path("webhook_body").asText()))));
+
+                record("purchase", System.nanoTime() - purchaseStart, true);
+                if (thinkMs > 0) Thread.sleep(thinkMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                record("purchase", System.nanoTime() - purchaseStart, false);
+            }
+        }
+    }
+
+    // ── Setup ─────────────────────────────────────────────────
+
+    /** Logs in as admin and tops up every size of the first catalog page; returns that page */
+    private List<JsonNode> restock(int units) throws Exception {
+        String adminToken = null;
+        if (units > 0) {
+            adminToken = login(option("admin-user", "admin"), option("admin-password", "Admin@123"));
+        }
+        JsonNode page = send("GET", baseUrl + "/server/garments/list?limit=24", null, null);
+        List<JsonNode> catalog = new ArrayList<>();
+        for (JsonNode garment : page.path("items")) {
+            catalog.add(garment);
+            if (adminToken == null) continue;
+            Map<String, Integer> stock = new LinkedHashMap<>();
+            for (String size : garment.path("sizes").asText("").split(",")) {
+                if (!size.isBlank()) stock.put(size.trim(), units);
+            }
+            send("PUT", baseUrl + "/server/admin/garments/" + garment.path("id").asLong() + "/stock", adminToken, stock);
+        }
+        return catalog;
+    }
+
+    private String login(String username, String password) throws Exception {
+        JsonNode tokens = send("POST", baseUrl + "/server/auth/login", null,
+                Map.of("username", username, "password", password));
+        String token = tokens.path("accessToken").asText("");
+        if (token.isBlank()) throw new IllegalStateException("Login failed for " + username);
+        return token;
+    }
+
+    // ── HTTP ──────────────────────────────────────────────────
+
+    private JsonNode send(String method, String url, String token, Object body) throws Exception {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json");
+        if (token != null) req.header("Authorization", "Bearer " + token);
+        if (body == null) {
+            req.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            req.header("Content-Type", "application/json")
+               .method(method, HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)));
+        }
+        return sendRaw(req);
+    }
+
+    private JsonNode sendRaw(HttpRequest.Builder req) throws Exception {
+        HttpResponse<byte[]> res = http.send(req.timeout(Duration.ofSeconds(30)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (res.statusCode() / 100 != 2) {
+            throw new IllegalStateException(res.statusCode() + " from " + res.uri().getPath());
+        }
+        byte[] raw = res.body();
+        return raw.length == 0 ? mapper.createObjectNode() : mapper.readTree(raw);
+    }
+
+    // ── Measurement ───────────────────────────────────────────
+
+    @FunctionalInterface
+    private interface Call {
+        JsonNode run() throws Exception;
+    }
+
+    private JsonNode timed(String step, Call call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            JsonNode result = call.run();
+            record(step, System.nanoTime() - start, true);
+            return result;
+        } catch (Exception e) {
+            record(step, System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private void record(String step, long nanos, boolean ok) {
+        long now = System.nanoTime();
+        if (now < measureFrom || now > measureUntil) return;
+        stats.get(step).add(nanos, ok);
+    }
+
+    private void report(int durationSec) {
+        System.out.printf("%n%-13s %9s %7s %9s %9s %9s %9s %9s%n",
+                "step", "ok", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (StepStats s : stats.values()) {
+            long[] sorted = s.snapshot();
+            System.out.printf("%-13s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    s.name, sorted.length, s.errors(), sorted.length / (double) durationSec,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                    millis(percentile(sorted, 0.999)), millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    /** Successful-call latencies (ns) and an error count for one step */
+    private static final class StepStats {
+
+        final String name;
+        private long[] samples = new long[4096];
+        private int count;
+        private long errors;
+
+        StepStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(long nanos, boolean ok) {
+            if (!ok) {
+                errors++;
+                return;
+            }
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = nanos;
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+
+        synchronized long[] snapshot() {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shop.demo.loadtest;
+
+import com.shop.demo.service.s3.ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Stand-in for {@link com.shop.demo.service.s3.S3Service} under the loadtest
+ * profile — same key layout ("products/uuid_name"), written to
+ * loadtest.storage.dir and returned as a file: URL.
+ */
+@Service
+@Profile("loadtest")
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+
+    public LocalImageStorage(@Value("${loadtest.storage.dir}") String dir) throws IOException {
+        this.root = Files.createDirectories(Path.of(dir, "products"));
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file) throws IOException {
+        String originalName = file.getOriginalFilename() != null
+                ? file.getOriginalFilename().replaceAll("[^a-zA-Z0-9._-]", "_")
+                : "upload";
+        Path target = root.resolve(UUID.randomUUID() + "_" + originalName);
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target.toUri().toString();
+    }
+}
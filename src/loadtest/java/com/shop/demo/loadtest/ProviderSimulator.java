@@ -0,0 +1,276 @@
+package com.shop.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for Razorpay and Shiprocket under the loadtest profile,
+ * served on localhost:loadtest.simulator.port. The app reaches it through
+ * the normal outbound clients (razorpay.api-base-url / shiprocket.api-base-url
+ * point here), so pools, bulkheads and circuit breakers are exercised as in
+ * production.
+ *
+ * Razorpay:
+ *   POST /razorpay/v1/orders       — Orders API: basic auth checked, amount echoed back
+ *   POST /razorpay/sim/pay         — what the checkout modal and Razorpay's webhook delivery
+ *                                    would produce for { order_id, amount }: payment id,
+ *                                    checkout signature, and a signed payment.captured webhook
+ * Shiprocket:
+ *   POST /shiprocket/v1/external/auth/login
+ *   POST /shiprocket/v1/external/orders/create/adhoc
+ *                                  — latency + jitter, error-rate answers 500,
+ *                                    hang-rate holds the call past the client's response timeout
+ */
+@Component
+@Profile("loadtest")
+public class ProviderSimulator {
+
+    private record Reply(int status, Object body) {}
+
+    @FunctionalInterface
+    private interface Route {
+        Reply handle(HttpExchange exchange, JsonNode body) throws Exception;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong(100_000);
+    private final String shiprocketToken = "sim-" + UUID.randomUUID();
+
+    private final int port;
+    private final String razorpayAuthorization;
+    private final String keySecret;
+    private final String webhookSecret;
+    private final String shiprocketEmail;
+    private final String shiprocketPassword;
+    private final long razorpayLatencyMs;
+    private final long shiprocketLatencyMs;
+    private final long shiprocketJitterMs;
+    private final double shiprocketErrorRate;
+    private final double shiprocketHangRate;
+    private final long shiprocketHangMs;
+    private final ApplicationLogger logger;
+
+    private final AtomicLong razorpayOrders    = new AtomicLong();
+    private final AtomicLong razorpayPayments  = new AtomicLong();
+    private final AtomicLong shiprocketCreated = new AtomicLong();
+    private final AtomicLong shiprocketFailed  = new AtomicLong();
+    private final AtomicLong shiprocketLogins  = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ProviderSimulator(@Value("${loadtest.simulator.port:18090}") int port,
+                             @Value("${razorpay.key-id}") String keyId,
+                             @Value("${razorpay.key-secret}") String keySecret,
+                             @Value("${razorpay.webhook-secret}") String webhookSecret,
+                             @Value("${shiprocket.email}") String shiprocketEmail,
+                             @Value("${shiprocket.password}") String shiprocketPassword,
+                             @Value("${loadtest.razorpay.latency-ms:40}") long razorpayLatencyMs,
+                             @Value("${loadtest.shiprocket.latency-ms:250}") long shiprocketLatencyMs,
+                             @Value("${loadtest.shiprocket.latency-jitter-ms:250}") long shiprocketJitterMs,
+                             @Value("${loadtest.shiprocket.error-rate:0.02}") double shiprocketErrorRate,
+                             @Value("${loadtest.shiprocket.hang-rate:0.0}") double shiprocketHangRate,
+                             @Value("${outbound.shiprocket.response-timeout-ms:15000}") long shiprocketResponseTimeoutMs,
+                             ApplicationLogger logger) {
+        this.port                  = port;
+        this.razorpayAuthorization = "Basic " + Base64.getEncoder()
+                .encodeToString((keyId + ":" + keySecret).getBytes(StandardCharsets.UTF_8));
+        this.keySecret             = keySecret;
+        this.webhookSecret         = webhookSecret;
+        this.shiprocketEmail       = shiprocketEmail;
+        this.shiprocketPassword    = shiprocketPassword;
+        this.razorpayLatencyMs     = razorpayLatencyMs;
+        this.shiprocketLatencyMs   = shiprocketLatencyMs;
+        this.shiprocketJitterMs    = shiprocketJitterMs;
+        this.shiprocketErrorRate   = shiprocketErrorRate;
+        this.shiprocketHangRate    = shiprocketHangRate;
+        this.shiprocketHangMs      = shiprocketResponseTimeoutMs + 1_000;
+        this.logger                = logger;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.createContext("/razorpay/v1/orders",                        ex -> serve(ex, this::razorpayCreateOrder));
+        server.createContext("/razorpay/sim/pay",                          ex -> serve(ex, this::razorpayPay));
+        server.createContext("/shiprocket/v1/external/auth/login",         ex -> serve(ex, this::shiprocketLogin));
+        server.createContext("/shiprocket/v1/external/orders/create/adhoc", ex -> serve(ex, this::shiprocketCreateOrder));
+        // handlers sleep to model provider latency — one virtual thread per exchange
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Provider simulator listening on localhost:{} (shiprocket latency {}+{} ms, error rate {}, hang rate {})",
+                port, shiprocketLatencyMs, shiprocketJitterMs, shiprocketErrorRate, shiprocketHangRate);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+        logger.info("Provider simulator served: razorpay orders={}, payments={}; shiprocket logins={}, created={}, failed={}",
+                razorpayOrders.get(), razorpayPayments.get(),
+                shiprocketLogins.get(), shiprocketCreated.get(), shiprocketFailed.get());
+    }
+
+    // ── Razorpay ──────────────────────────────────────────────
+
+    private Reply razorpayCreateOrder(HttpExchange exchange, JsonNode body) throws InterruptedException {
+        if (!razorpayAuthorization.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            return razorpayError(401, "Authentication failed");
+        }
+        long amount = body.path("amount").asLong(0);
+        if (amount < 100) {
+            return razorpayError(400, "The amount must be atleast INR 1.00");
+        }
+        Thread.sleep(razorpayLatencyMs);
+
+        razorpayOrders.incrementAndGet();
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("id",         "order_sim" + sequence.incrementAndGet());
+        order.put("entity",     "order");
+        order.put("amount",     amount);
+        order.put("amount_due", amount);
+        order.put("currency",   body.path("currency").asText("INR"));
+        order.put("receipt",    body.path("receipt").asText(""));
+        order.put("status",     "created");
+        order.put("created_at", System.currentTimeMillis() / 1000);
+        return new Reply(200, order);
+    }
+
+    private Reply razorpayPay(HttpExchange exchange, JsonNode body) throws Exception {
+        String orderId = body.path("order_id").asText("");
+        if (orderId.isBlank()) return razorpayError(400, "order_id is required");
+        long seq = sequence.incrementAndGet();
+        String paymentId = "pay_sim" + seq;
+
+        Map<String, Object> payment = new LinkedHashMap<>();
+        payment.put("id",       paymentId);
+        payment.put("entity",   "payment");
+        payment.put("order_id", orderId);
+        payment.put("amount",   body.path("amount").asLong(0));
+        payment.put("currency", "INR");
+        payment.put("status",   "captured");
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("entity",     "event");
+        event.put("event",      "payment.captured");
+        event.put("payload",    Map.of("payment", Map.of("entity", payment)));
+        event.put("created_at", System.currentTimeMillis() / 1000);
+        String webhookBody = mapper.writeValueAsString(event);
+
+        razorpayPayments.incrementAndGet();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("razorpay_payment_id", paymentId);
+        result.put("razorpay_signature",  hmacHex(keySecret, orderId + "|" + paymentId));
+        result.put("webhook_event_id",    "evt_sim" + seq);
+        result.put("webhook_body",        webhookBody);
+        result.put("webhook_signature",   hmacHex(webhookSecret, webhookBody));
+        return new Reply(200, result);
+    }
+
+    private static Reply razorpayError(int status, String description) {
+        return new Reply(status, Map.of("error", Map.of(
+                "code",        "BAD_REQUEST_ERROR",
+                "description", description)));
+    }
+
+    // ── Shiprocket ────────────────────────────────────────────
+
+    private Reply shiprocketLogin(HttpExchange exchange, JsonNode body) {
+        if (!shiprocketEmail.equals(body.path("email").asText())
+                || !shiprocketPassword.equals(body.path("password").asText())) {
+            return new Reply(401, Map.of("message", "Invalid email and password combination"));
+        }
+        shiprocketLogins.incrementAndGet();
+        return new Reply(200, Map.of("token", shiprocketToken));
+    }
+
+    private Reply shiprocketCreateOrder(HttpExchange exchange, JsonNode body) throws InterruptedException {
+        if (!("Bearer " + shiprocketToken).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            return new Reply(401, Map.of("message", "Token has expired"));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+        if (roll < shiprocketHangRate) {
+            Thread.sleep(shiprocketHangMs);
+            shiprocketFailed.incrementAndGet();
+            return new Reply(504, Map.of("message", "Simulated hang"));
+        }
+        Thread.sleep(shiprocketLatencyMs + (shiprocketJitterMs > 0 ? random.nextLong(shiprocketJitterMs + 1) : 0));
+        if (roll < shiprocketHangRate + shiprocketErrorRate) {
+            shiprocketFailed.incrementAndGet();
+            return new Reply(500, Map.of("message", "Simulated failure"));
+        }
+
+        long seq = sequence.incrementAndGet();
+        shiprocketCreated.incrementAndGet();
+        Map<String, Object> created = new LinkedHashMap<>();
+        created.put("order_id",         seq);
+        created.put("channel_order_id", body.path("order_id").asText(""));
+        created.put("shipment_id",      seq + 500_000);
+        created.put("status",           "NEW");
+        created.put("awb_code",         "SIMAWB" + seq);
+        return new Reply(200, created);
+    }
+
+    // ── Plumbing ──────────────────────────────────────────────
+
+    private void serve(HttpExchange exchange, Route route) throws IOException {
+        Reply reply;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reply = new Reply(405, Map.of("message", "Method not allowed"));
+            } else {
+                JsonNode body;
+                try (InputStream in = exchange.getRequestBody()) {
+                    byte[] raw = in.readAllBytes();
+                    body = raw.length == 0 ? mapper.createObjectNode() : mapper.readTree(raw);
+                }
+                reply = route.handle(exchange, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply = new Reply(503, Map.of("message", "Simulator stopping"));
+        } catch (Exception e) {
+            reply = new Reply(500, Map.of("message", "Simulator error: " + e.getMessage()));
+        }
+
+        byte[] out = mapper.writeValueAsBytes(reply.body());
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(reply.status(), out.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(out);
+        }
+    }
+
+    private static String hmacHex(String secret, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -106,6 +106,8 @@ public class ProjectDBConfig {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Connector/J sends a JDBC batch of INSERTs as one multi-row statement
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
 
         try {
             HikariDataSource ds = new HikariDataSource(config);
@@ -253,6 +255,10 @@ public class ProjectDBConfig {
         jpaProps.setProperty("hibernate.show_sql", "true");
         jpaProps.setProperty("hibernate.format_sql", "true");
         jpaProps.setProperty("hibernate.hbm2ddl.auto", "validate");
+        jpaProps.setProperty("hibernate.jdbc.batch_size", String.valueOf(dbProps.getJpaBatchSize()));
+        jpaProps.setProperty("hibernate.order_inserts", String.valueOf(dbProps.isOrderInserts()));
+        jpaProps.setProperty("hibernate.order_updates", String.valueOf(dbProps.isOrderUpdates()));
+        jpaProps.setProperty("hibernate.jdbc.batch_versioned_data", "true");
 
         em.setJpaProperties(jpaProps);
 
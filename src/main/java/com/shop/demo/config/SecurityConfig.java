@@ -58,6 +58,7 @@ public class SecurityConfig {
                 .requestMatchers("/server/garments/featured", "/api/garments/featured").permitAll()
                 .requestMatchers("/server/garments/**",       "/api/garments/**").permitAll()
                 .requestMatchers("/server/categories",        "/api/categories").permitAll()
+                .requestMatchers("/server/categories/*/breadcrumb", "/api/categories/*/breadcrumb").permitAll()
                 // Payment webhooks — must be public (Razorpay / Shiprocket call these)
                 .requestMatchers("/server/webhook/**").permitAll()
                 // All other backend API calls require authentication
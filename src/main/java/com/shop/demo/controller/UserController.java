@@ -3,11 +3,14 @@ package com.shop.demo.controller;
 import com.shop.demo.database.entity.project.UserEntity;
 import com.shop.demo.logMaintain.ApplicationLogger;
 import com.shop.demo.service.activitylog.ActivityLogService;
+import com.shop.demo.service.export.DataExportService;
 import com.shop.demo.service.user.UserService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -19,13 +22,16 @@ public class UserController {
 
     private final UserService userService;
     private final ActivityLogService activityLogService;
+    private final DataExportService dataExportService;
     private final ApplicationLogger logger;
 
     public UserController(UserService userService,
                           ActivityLogService activityLogService,
+                          DataExportService dataExportService,
                           ApplicationLogger logger) {
         this.userService        = userService;
         this.activityLogService = activityLogService;
+        this.dataExportService  = dataExportService;
         this.logger             = logger;
     }
 
@@ -83,6 +89,27 @@ public class UserController {
                 .collect(Collectors.toList());
     }
 
+    /** GET /server/user/getUserAll/export – same fields streamed as NDJSON (default) or CSV, admin only */
+    @GetMapping(value = "/getUserAll/export", produces = { "application/x-ndjson", "text/csv" })
+    public void exportAllUsers(
+            @RequestParam(required = false) String format,
+            @RequestAttribute(value = "userRole", required = false) Integer userRole,
+            HttpServletResponse response) throws IOException {
+        if (userRole == null || (userRole & 2) == 0) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        DataExportService.Format exportFormat;
+        try {
+            exportFormat = DataExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        logger.info("Exporting all users as {}", exportFormat);
+        dataExportService.export(DataExportService.Export.USERS, exportFormat, response);
+    }
+
     /** POST /server/user/editUser */
     @PostMapping("/editUser")
     public ResponseEntity<String> editUser(@RequestBody UserEntity user) {
@@ -1,17 +1,22 @@
 package com.shop.demo.controller.shop;
 
 import com.shop.demo.database.entity.project.shop.GarmentEntity;
-import com.shop.demo.database.entity.project.shop.OrderItemEntity;
 import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
-import com.shop.demo.database.repository.projectRepository.shop.OrderItemRepository;
-import com.shop.demo.database.repository.projectRepository.shop.OrderRepository;
+import com.shop.demo.service.analytics.SalesAggregateService;
+import com.shop.demo.service.cart.AbandonedCartSweeper;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import com.shop.demo.service.export.DataExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,19 +25,58 @@ import java.util.stream.Collectors;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class AdminAnalyticsController {
 
-    private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final GarmentRepository garmentRepository;
-
-    public AdminAnalyticsController(OrderRepository orderRepository,
-                                    OrderItemRepository orderItemRepository,
-                                    GarmentRepository garmentRepository) {
-        this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
+    private final SalesAggregateService salesAggregateService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final DataExportService dataExportService;
+    private final AbandonedCartSweeper abandonedCartSweeper;
+
+    public AdminAnalyticsController(GarmentRepository garmentRepository,
+                                    SalesAggregateService salesAggregateService,
+                                    CatalogSnapshotService catalogSnapshotService,
+                                    DataExportService dataExportService,
+                                    AbandonedCartSweeper abandonedCartSweeper) {
         this.garmentRepository = garmentRepository;
+        this.salesAggregateService = salesAggregateService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.dataExportService = dataExportService;
+        this.abandonedCartSweeper = abandonedCartSweeper;
+    }
+
+    /** GET /server/admin/analytics/abandoned-carts — value left in expired carts, total and top garments */
+    @GetMapping("/server/admin/analytics/abandoned-carts")
+    public ResponseEntity<AbandonedCartSweeper.AbandonedSummary> getAbandonedCarts(
+            @RequestAttribute(value = "userRole", required = false) Integer userRole) {
+        if (userRole == null || (userRole & 2) == 0) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(abandonedCartSweeper.summary());
     }
 
-    /** GET /server/admin/analytics/summary — revenue, profit, sold units, top sellers, low stock */
+    /** GET /server/admin/analytics/export — every order line with revenue and cost, NDJSON (default) or CSV */
+    @GetMapping(value = "/server/admin/analytics/export", produces = { "application/x-ndjson", "text/csv" })
+    public void exportSalesLines(
+            @RequestParam(required = false) String format,
+            @RequestAttribute(value = "userRole", required = false) Integer userRole,
+            HttpServletResponse response) throws IOException {
+        if (userRole == null || (userRole & 2) == 0) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        DataExportService.Format exportFormat;
+        try {
+            exportFormat = DataExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        dataExportService.export(DataExportService.Export.SALES_LINES, exportFormat, response);
+    }
+
+    /**
+     * GET /server/admin/analytics/summary — revenue, profit, sold units, top sellers, low stock.
+     * Sales figures come from the running aggregates; only the low-stock list and stock value query garments.
+     */
     @GetMapping("/server/admin/analytics/summary")
     public ResponseEntity<Map<String, Object>> getSummary(
             @RequestAttribute(value = "userRole", required = false) Integer userRole) {
@@ -40,81 +84,24 @@ public class AdminAnalyticsController {
             return ResponseEntity.status(403).build();
         }
 
-        List<OrderItemEntity> allItems = orderItemRepository.findAll();
-        List<GarmentEntity> allGarments = garmentRepository.findAll();
-        long totalOrders = orderRepository.count();
-
-        Map<Long, GarmentEntity> garmentMap = allGarments.stream()
-                .collect(Collectors.toMap(GarmentEntity::getId, g -> g));
-
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        int totalUnitsSold = 0;
-        Map<Long, Integer> unitsByGarment = new HashMap<>();
-        Map<Long, BigDecimal> revenueByGarment = new HashMap<>();
-
-        for (OrderItemEntity item : allItems) {
-            BigDecimal lineRevenue = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-            totalRevenue = totalRevenue.add(lineRevenue);
-            totalUnitsSold += item.getQuantity();
-            unitsByGarment.merge(item.getGarmentId(), item.getQuantity(), Integer::sum);
-            revenueByGarment.merge(item.getGarmentId(), lineRevenue, BigDecimal::add);
-            GarmentEntity g = garmentMap.get(item.getGarmentId());
-            if (g != null && g.getCostPrice() != null && g.getCostPrice() > 0) {
-                totalCost = totalCost.add(BigDecimal.valueOf(g.getCostPrice()).multiply(BigDecimal.valueOf(item.getQuantity())));
-            }
-        }
+        SalesAggregateService.Totals totals = salesAggregateService.totals();
 
-        BigDecimal totalProfit = totalRevenue.subtract(totalCost);
-
-        // top 5 selling garments by units sold — includes revenue for financial view
-        List<Map<String, Object>> topSelling = unitsByGarment.entrySet().stream()
-                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
-                .limit(5)
-                .map(e -> {
-                    GarmentEntity g = garmentMap.get(e.getKey());
-                    BigDecimal rev = revenueByGarment.getOrDefault(e.getKey(), BigDecimal.ZERO);
-                    int units = e.getValue();
-                    BigDecimal cost = (g != null && g.getCostPrice() != null && g.getCostPrice() > 0)
-                            ? BigDecimal.valueOf(g.getCostPrice()).multiply(BigDecimal.valueOf(units))
-                            : BigDecimal.ZERO;
-                    Map<String, Object> entry = new HashMap<>();
-                    entry.put("garmentId", e.getKey());
-                    entry.put("name", g != null ? g.getName() : "Unknown");
-                    entry.put("color", g != null ? g.getBaseColor() : null);
-                    entry.put("unitsSold", units);
-                    entry.put("revenue", rev);
-                    entry.put("profit", rev.subtract(cost));
-                    return entry;
-                })
+        // top 5 selling garments by units sold, and top 5 by revenue — includes revenue and profit for financial view
+        List<SalesAggregateService.GarmentSales> byUnits =
+                salesAggregateService.top(Comparator.comparingLong(SalesAggregateService.GarmentSales::units), 5);
+        List<SalesAggregateService.GarmentSales> byRevenue =
+                salesAggregateService.top(Comparator.comparing(SalesAggregateService.GarmentSales::revenue), 5);
+        Map<Long, GarmentEntity> garmentMap = garments(byUnits, byRevenue);
+        List<Map<String, Object>> topSelling = byUnits.stream()
+                .map(s -> salesEntry(s, garmentMap.get(s.garmentId())))
                 .collect(Collectors.toList());
-
-        // top 5 by revenue (for financial breakdown)
-        List<Map<String, Object>> topByRevenue = revenueByGarment.entrySet().stream()
-                .sorted(Map.Entry.<Long, BigDecimal>comparingByValue().reversed())
-                .limit(5)
-                .map(e -> {
-                    GarmentEntity g = garmentMap.get(e.getKey());
-                    int units = unitsByGarment.getOrDefault(e.getKey(), 0);
-                    BigDecimal rev = e.getValue();
-                    BigDecimal cost = (g != null && g.getCostPrice() != null && g.getCostPrice() > 0)
-                            ? BigDecimal.valueOf(g.getCostPrice()).multiply(BigDecimal.valueOf(units))
-                            : BigDecimal.ZERO;
-                    Map<String, Object> entry = new HashMap<>();
-                    entry.put("garmentId", e.getKey());
-                    entry.put("name", g != null ? g.getName() : "Unknown");
-                    entry.put("color", g != null ? g.getBaseColor() : null);
-                    entry.put("unitsSold", units);
-                    entry.put("revenue", rev);
-                    entry.put("profit", rev.subtract(cost));
-                    return entry;
-                })
+        List<Map<String, Object>> topByRevenue = byRevenue.stream()
+                .map(s -> salesEntry(s, garmentMap.get(s.garmentId())))
                 .collect(Collectors.toList());
 
         // low stock: active garments with stock < 10
-        List<Map<String, Object>> lowStock = allGarments.stream()
-                .filter(g -> g.isActive() && g.getStockQuantity() != null && g.getStockQuantity() < 10)
-                .sorted(Comparator.comparingInt(g -> (g.getStockQuantity() != null ? g.getStockQuantity() : 0)))
+        List<Map<String, Object>> lowStock = garmentRepository
+                .findByActiveTrueAndStockQuantityLessThanOrderByStockQuantityAsc(10).stream()
                 .map(g -> {
                     Map<String, Object> entry = new HashMap<>();
                     entry.put("id", g.getId());
@@ -126,17 +113,13 @@ public class AdminAnalyticsController {
                 .collect(Collectors.toList());
 
         // total stock value = sum(basePrice * stockQuantity) for active garments
-        BigDecimal totalStockValue = allGarments.stream()
-                .filter(GarmentEntity::isActive)
-                .map(g -> BigDecimal.valueOf(g.getBasePrice() != null ? g.getBasePrice() : 0)
-                        .multiply(BigDecimal.valueOf(g.getStockQuantity() != null ? g.getStockQuantity() : 0)))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalStockValue = BigDecimal.valueOf(garmentRepository.activeStockValue());
 
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalRevenue", totalRevenue);
-        summary.put("totalProfit", totalProfit);
-        summary.put("totalOrders", totalOrders);
-        summary.put("totalUnitsSold", totalUnitsSold);
+        summary.put("totalRevenue", totals.revenue());
+        summary.put("totalProfit", totals.profit());
+        summary.put("totalOrders", totals.orders());
+        summary.put("totalUnitsSold", totals.units());
         summary.put("totalStockValue", totalStockValue);
         summary.put("topSelling", topSelling);
         summary.put("topByRevenue", topByRevenue);
@@ -145,4 +128,34 @@ public class AdminAnalyticsController {
 
         return ResponseEntity.ok(summary);
     }
+
+    /** Name and colour for the listed garments — from the catalog snapshot, the repository for inactive ones */
+    @SafeVarargs
+    private Map<Long, GarmentEntity> garments(List<SalesAggregateService.GarmentSales>... lists) {
+        CatalogSnapshot catalog = catalogSnapshotService.get();
+        Map<Long, GarmentEntity> garments = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (List<SalesAggregateService.GarmentSales> list : lists) {
+            for (SalesAggregateService.GarmentSales s : list) {
+                GarmentEntity g = catalog.getGarment(s.garmentId());
+                if (g != null) garments.put(g.getId(), g);
+                else missing.add(s.garmentId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (GarmentEntity g : garmentRepository.findAllById(missing)) garments.put(g.getId(), g);
+        }
+        return garments;
+    }
+
+    private static Map<String, Object> salesEntry(SalesAggregateService.GarmentSales s, GarmentEntity g) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("garmentId", s.garmentId());
+        entry.put("name", g != null ? g.getName() : "Unknown");
+        entry.put("color", g != null ? g.getBaseColor() : null);
+        entry.put("unitsSold", s.units());
+        entry.put("revenue", s.revenue());
+        entry.put("profit", s.profit());
+        return entry;
+    }
 }
@@ -1,15 +1,19 @@
 package com.shop.demo.controller.shop;
 
 import com.shop.demo.database.entity.project.shop.CartItemEntity;
-import com.shop.demo.database.repository.projectRepository.shop.CartItemRepository;
-import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
 import com.shop.demo.logMaintain.ApplicationLogger;
 import com.shop.demo.service.activitylog.ActivityLogService;
+import com.shop.demo.service.cart.CartService;
+import com.shop.demo.service.cart.CartViewService;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -17,19 +21,22 @@ import java.util.Map;
 @RequestMapping(value = "/server/user/cart", produces = MediaType.APPLICATION_JSON_VALUE)
 public class CartController {
 
-    private final CartItemRepository cartItemRepository;
-    private final GarmentRepository garmentRepository;
+    private final CartService cartService;
+    private final CartViewService cartViewService;
+    private final CatalogSnapshotService catalogSnapshotService;
     private final ActivityLogService activityLogService;
     private final ApplicationLogger logger;
 
-    public CartController(CartItemRepository cartItemRepository,
-                          GarmentRepository garmentRepository,
+    public CartController(CartService cartService,
+                          CartViewService cartViewService,
+                          CatalogSnapshotService catalogSnapshotService,
                           ActivityLogService activityLogService,
                           ApplicationLogger logger) {
-        this.cartItemRepository = cartItemRepository;
-        this.garmentRepository  = garmentRepository;
-        this.activityLogService = activityLogService;
-        this.logger             = logger;
+        this.cartService            = cartService;
+        this.cartViewService        = cartViewService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.activityLogService     = activityLogService;
+        this.logger                 = logger;
     }
 
     public static class AddToCartRequest {
@@ -38,12 +45,39 @@ public class CartController {
         public Integer quantity;
     }
 
+    public static class BatchRequest {
+        public List<BatchOperation> operations;
+    }
+
+    /** op: "add" (garmentId, size, quantity), "set" (id, quantity) or "remove" (id) */
+    public static class BatchOperation {
+        public String op;
+        public Long id;
+        public Long garmentId;
+        public String size;
+        public Integer quantity;
+    }
+
+    private static final int MAX_BATCH_OPERATIONS = 50;
+
     /** GET /server/user/cart – view cart */
     @GetMapping
     public ResponseEntity<List<CartItemEntity>> getCart(
             @RequestAttribute(value = "userId", required = false) Long userId) {
         if (userId == null) return ResponseEntity.status(401).build();
-        return ResponseEntity.ok(cartItemRepository.findByUserId(userId));
+        return ResponseEntity.ok(cartService.items(userId));
+    }
+
+    /**
+     * GET /server/user/cart/view – cart lines with garment name, image, current
+     * price, stock and flags, plus totals — everything the cart page needs.
+     * Response: { items: [...], itemCount, total, checkoutReady }
+     */
+    @GetMapping("/view")
+    public ResponseEntity<CartViewService.CartView> getCartView(
+            @RequestAttribute(value = "userId", required = false) Long userId) {
+        if (userId == null) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(cartViewService.view(userId));
     }
 
     /** POST /server/user/cart – add garment with size */
@@ -58,27 +92,14 @@ public class CartController {
             return ResponseEntity.badRequest().body(Map.of("error", "garmentId and size are required"));
         }
 
-        if (!garmentRepository.existsById(request.garmentId)) {
+        // active garments only — the snapshot answers without a query
+        GarmentEntity garment = catalogSnapshotService.get().getGarment(request.garmentId);
+        if (garment == null) {
             return ResponseEntity.notFound().<Map<String, String>>build();
         }
 
         int qty = (request.quantity != null && request.quantity > 0) ? request.quantity : 1;
-
-        cartItemRepository.findByUserIdAndGarmentIdAndSize(userId, request.garmentId, request.size)
-                .ifPresentOrElse(
-                        item -> {
-                            item.setQuantity(item.getQuantity() + qty);
-                            cartItemRepository.save(item);
-                        },
-                        () -> {
-                            CartItemEntity item = new CartItemEntity();
-                            item.setUserId(userId);
-                            item.setGarmentId(request.garmentId);
-                            item.setSize(request.size);
-                            item.setQuantity(qty);
-                            cartItemRepository.save(item);
-                        }
-                );
+        cartService.add(userId, request.garmentId, request.size, qty, garment.getBasePrice());
 
         activityLogService.logCartAdd(userId, request.garmentId, httpRequest.getRemoteAddr());
         logger.info("Cart add: userId={}, garmentId={}, size={}", userId, request.garmentId, request.size);
@@ -95,14 +116,7 @@ public class CartController {
         if (userId == null) return ResponseEntity.status(401).build();
         if (quantity < 1) return ResponseEntity.badRequest().body(Map.of("error", "Quantity must be at least 1"));
 
-        return cartItemRepository.findById(id).map(item -> {
-            if (!item.getUserId().equals(userId)) {
-                return ResponseEntity.status(403).<Map<String, String>>body(Map.of("error", "Forbidden"));
-            }
-            item.setQuantity(quantity);
-            cartItemRepository.save(item);
-            return ResponseEntity.ok(Map.of("message", "Quantity updated"));
-        }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
+        return lineResponse(cartService.setQuantity(userId, id, quantity), "Quantity updated");
     }
 
     /** DELETE /server/user/cart/{id} – remove item */
@@ -113,12 +127,85 @@ public class CartController {
 
         if (userId == null) return ResponseEntity.status(401).build();
 
-        return cartItemRepository.findById(id).map(item -> {
-            if (!item.getUserId().equals(userId)) {
-                return ResponseEntity.status(403).<Map<String, String>>body(Map.of("error", "Forbidden"));
+        return lineResponse(cartService.remove(userId, id), "Removed from cart");
+    }
+
+    /**
+     * POST /server/user/cart/batch – apply several adds, quantity changes and
+     * removals in order, as one transaction. All or nothing: any invalid
+     * operation rejects the batch. Response: the resulting cart view.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(
+            @RequestBody BatchRequest request,
+            @RequestAttribute(value = "userId", required = false) Long userId,
+            HttpServletRequest httpRequest) {
+
+        if (userId == null) return ResponseEntity.status(401).build();
+        if (request.operations == null || request.operations.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "operations are required"));
+        }
+        if (request.operations.size() > MAX_BATCH_OPERATIONS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BATCH_OPERATIONS + " operations per batch"));
+        }
+
+        CatalogSnapshot catalog = catalogSnapshotService.get();
+        List<CartService.Operation> operations = new ArrayList<>(request.operations.size());
+        for (BatchOperation o : request.operations) {
+            String op = o.op != null ? o.op.toLowerCase() : "";
+            switch (op) {
+                case "add" -> {
+                    if (o.garmentId == null || o.size == null || o.size.isBlank()) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "add requires garmentId and size"));
+                    }
+                    GarmentEntity garment = catalog.getGarment(o.garmentId);
+                    if (garment == null) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "Garment " + o.garmentId + " is not available"));
+                    }
+                    int qty = (o.quantity != null && o.quantity > 0) ? o.quantity : 1;
+                    operations.add(new CartService.Operation(CartService.Operation.Kind.ADD,
+                            null, o.garmentId, o.size, qty, garment.getBasePrice()));
+                }
+                case "set" -> {
+                    if (o.id == null || o.quantity == null || o.quantity < 1) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "set requires id and a quantity of at least 1"));
+                    }
+                    operations.add(new CartService.Operation(CartService.Operation.Kind.SET,
+                            o.id, null, null, o.quantity, null));
+                }
+                case "remove" -> {
+                    if (o.id == null) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "remove requires id"));
+                    }
+                    operations.add(new CartService.Operation(CartService.Operation.Kind.REMOVE,
+                            o.id, null, null, 0, null));
+                }
+                default -> {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Unknown op: " + o.op));
+                }
             }
-            cartItemRepository.delete(item);
-            return ResponseEntity.ok(Map.of("message", "Removed from cart"));
-        }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
+        }
+
+        try {
+            cartService.apply(userId, operations);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        for (CartService.Operation op : operations) {
+            if (op.kind() == CartService.Operation.Kind.ADD) {
+                activityLogService.logCartAdd(userId, op.garmentId(), httpRequest.getRemoteAddr());
+            }
+        }
+        logger.info("Cart batch: userId={}, operations={}", userId, operations.size());
+        return ResponseEntity.ok(cartViewService.view(userId));
+    }
+
+    private static ResponseEntity<Map<String, String>> lineResponse(CartService.LineResult result, String message) {
+        return switch (result) {
+            case UPDATED   -> ResponseEntity.ok(Map.of("message", message));
+            case FORBIDDEN -> ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+        };
     }
 }
@@ -2,6 +2,12 @@ package com.shop.demo.controller.shop;
 
 import com.shop.demo.database.entity.project.shop.CategoryEntity;
 import com.shop.demo.database.repository.projectRepository.shop.CategoryRepository;
+import com.shop.demo.service.catalog.CatalogChangedEvent;
+import com.shop.demo.service.catalog.CatalogResponseCache;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import com.shop.demo.service.catalog.CategoryTreeService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,15 +20,40 @@ import java.util.Map;
 public class CategoryController {
 
     private final CategoryRepository categoryRepository;
-
-    public CategoryController(CategoryRepository categoryRepository) {
-        this.categoryRepository = categoryRepository;
+    private final CatalogResponseCache catalogResponseCache;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CategoryTreeService categoryTreeService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CategoryController(CategoryRepository categoryRepository,
+                              CatalogResponseCache catalogResponseCache,
+                              CatalogSnapshotService catalogSnapshotService,
+                              CategoryTreeService categoryTreeService,
+                              ApplicationEventPublisher eventPublisher) {
+        this.categoryRepository     = categoryRepository;
+        this.catalogResponseCache   = catalogResponseCache;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.categoryTreeService    = categoryTreeService;
+        this.eventPublisher         = eventPublisher;
     }
 
-    /** Public — authenticated users see active categories (used by shop page) */
+    /**
+     * Public — authenticated users see active categories (used by shop page).
+     * Pre-rendered JSON from the catalog snapshot; honours If-None-Match (304).
+     */
     @GetMapping("/server/categories")
-    public List<CategoryEntity> getActiveCategories() {
-        return categoryRepository.findByActiveTrueOrderByDepthAscDisplayOrderAsc();
+    public ResponseEntity<byte[]> getActiveCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponseCache.categories().toResponse(ifNoneMatch, acceptEncoding);
+    }
+
+    /** Public — root-to-leaf chain of active categories ending at id (for breadcrumbs) */
+    @GetMapping("/server/categories/{id}/breadcrumb")
+    public ResponseEntity<List<CategoryEntity>> getBreadcrumb(@PathVariable Long id) {
+        List<CategoryEntity> path = catalogSnapshotService.get().getCategoryPath(id);
+        if (path.isEmpty()) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(path);
     }
 
     /** Admin/Tech — all categories including hidden */
@@ -40,6 +71,7 @@ public class CategoryController {
         return categoryRepository.findById(id).map(cat -> {
             cat.setActive(active);
             categoryRepository.save(cat);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Category updated"));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
@@ -57,6 +89,7 @@ public class CategoryController {
         return categoryRepository.findById(id).map(cat -> {
             cat.setName(newName.trim());
             categoryRepository.save(cat);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Category renamed"));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
@@ -66,38 +99,88 @@ public class CategoryController {
     public ResponseEntity<Map<String, String>> deleteCategory(@PathVariable Long id) {
         return categoryRepository.findById(id).map(cat -> {
             categoryRepository.delete(cat);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Category deleted"));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
 
-    /** Admin/Tech — create a new category */
+    /** Admin/Tech — create a new category (appended after its siblings) */
     @PostMapping("/server/admin/categories")
-    public ResponseEntity<CategoryEntity> createCategory(
+    public ResponseEntity<?> createCategory(
             @RequestBody CategoryRequest request) {
 
-        CategoryEntity cat = new CategoryEntity();
-        cat.setName(request.name);
-        cat.setActive(true);
-
-        if (request.parentId != null) {
-            cat.setParentId(request.parentId);
-            // depth = parent.depth + 1
-            categoryRepository.findById(request.parentId).ifPresent(parent ->
-                cat.setDepth(parent.getDepth() + 1)
-            );
-        } else {
-            cat.setDepth(0);
+        if (request.name == null || request.name.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Name is required"));
+        }
+        try {
+            CategoryEntity saved = categoryTreeService.create(request.name.trim(), request.parentId);
+            catalogChanged(saved.getId());
+            return ResponseEntity.ok(saved);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** Admin/Tech — category plus all descendants including hidden ones */
+    @GetMapping("/server/admin/categories/{id}/subtree")
+    public ResponseEntity<List<CategoryEntity>> getSubtree(@PathVariable Long id) {
+        List<CategoryEntity> subtree = categoryTreeService.subtree(id);
+        if (subtree.isEmpty()) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(subtree);
+    }
+
+    /** Admin/Tech — move a category and its whole subtree under a new parent (null = root) */
+    @PatchMapping("/server/admin/categories/{id}/move")
+    public ResponseEntity<?> moveCategory(
+            @PathVariable Long id,
+            @RequestBody MoveRequest request) {
+
+        try {
+            return categoryTreeService.move(id, request.parentId, request.displayOrder)
+                    .<ResponseEntity<?>>map(cat -> {
+                        catalogChanged(id);
+                        return ResponseEntity.ok(cat);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
+
+    /** Admin/Tech — reorder the children of a parent (null = roots) in the given sequence */
+    @PatchMapping("/server/admin/categories/reorder")
+    public ResponseEntity<Map<String, String>> reorderCategories(
+            @RequestBody ReorderRequest request) {
 
-        // display_order = current max + 1 at this depth
-        cat.setDisplayOrder(0);
+        if (request.orderedIds == null || request.orderedIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "orderedIds is required"));
+        }
+        try {
+            categoryTreeService.reorder(request.parentId, request.orderedIds);
+            catalogChanged(null);
+            return ResponseEntity.ok(Map.of("message", "Categories reordered"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-        CategoryEntity saved = categoryRepository.save(cat);
-        return ResponseEntity.ok(saved);
+    /** Triggers a catalog snapshot rebuild once the change has committed */
+    private void catalogChanged(Long categoryId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent("category", categoryId));
     }
 
     public static class CategoryRequest {
         public String name;
         public Long parentId;
     }
+
+    public static class MoveRequest {
+        public Long parentId;
+        public Integer displayOrder;
+    }
+
+    public static class ReorderRequest {
+        public Long parentId;
+        public List<Long> orderedIds;
+    }
 }
@@ -3,13 +3,28 @@ package com.shop.demo.controller.shop;
 import com.shop.demo.database.entity.project.shop.GarmentEntity;
 import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
 import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.catalog.CatalogChangedEvent;
+import com.shop.demo.service.catalog.CatalogResponseCache;
+import com.shop.demo.service.catalog.GarmentBulkImportService;
+import com.shop.demo.service.catalog.GarmentListingService;
+import com.shop.demo.service.export.DataExportService;
+import com.shop.demo.service.inventory.SkuInventoryService;
+import com.shop.demo.service.search.GarmentFacetService;
+import com.shop.demo.service.search.GarmentSearchService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -17,23 +32,131 @@ import java.util.Map;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class GarmentController {
 
+    private static final int MAX_AVAILABILITY_IDS = 100;
+
     private final GarmentRepository garmentRepository;
+    private final CatalogResponseCache catalogResponseCache;
+    private final GarmentListingService garmentListingService;
+    private final GarmentSearchService garmentSearchService;
+    private final GarmentFacetService garmentFacetService;
+    private final GarmentBulkImportService garmentBulkImportService;
+    private final SkuInventoryService skuInventoryService;
+    private final DataExportService dataExportService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     private final ApplicationLogger logger;
 
     public GarmentController(GarmentRepository garmentRepository,
+                             CatalogResponseCache catalogResponseCache,
+                             GarmentListingService garmentListingService,
+                             GarmentSearchService garmentSearchService,
+                             GarmentFacetService garmentFacetService,
+                             GarmentBulkImportService garmentBulkImportService,
+                             SkuInventoryService skuInventoryService,
+                             DataExportService dataExportService,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
                              ApplicationLogger logger) {
-        this.garmentRepository = garmentRepository;
-        this.logger            = logger;
+        this.garmentRepository        = garmentRepository;
+        this.catalogResponseCache     = catalogResponseCache;
+        this.garmentListingService    = garmentListingService;
+        this.garmentSearchService     = garmentSearchService;
+        this.garmentFacetService      = garmentFacetService;
+        this.garmentBulkImportService = garmentBulkImportService;
+        this.skuInventoryService      = skuInventoryService;
+        this.dataExportService        = dataExportService;
+        this.transactionTemplate      = transactionTemplate;
+        this.eventPublisher           = eventPublisher;
+        this.logger                   = logger;
     }
 
     // ─────────────────────────────────────────────────────────
     // PUBLIC ENDPOINTS
     // ─────────────────────────────────────────────────────────
 
-    /** All active garments — public shop listing */
+    /**
+     * All active garments — public shop listing.
+     * Served as pre-rendered JSON from the catalog snapshot; honours If-None-Match (304).
+     */
     @GetMapping("/server/garments")
-    public List<GarmentEntity> getActiveGarments() {
-        return garmentRepository.findByActiveTrueOrderByGarmentTypeAscIdAsc();
+    public ResponseEntity<byte[]> getActiveGarments(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponseCache.garments().toResponse(ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * Filtered, sorted, keyset-paginated shop listing.
+     * sort = price_asc | price_desc | newest (default) | popular;
+     * pass the returned nextCursor back as cursor to fetch the following page.
+     * Response: { items: [...], nextCursor: "..." | null } — pages are always full until the last one (nextCursor null)
+     */
+    @GetMapping("/server/garments/list")
+    public ResponseEntity<?> listGarments(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String garmentType,
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String size,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + GarmentListingService.DEFAULT_LIMIT) int limit) {
+        try {
+            GarmentListingService.Filter filter = new GarmentListingService.Filter(
+                    categoryId, garmentType, color, size, minPrice, maxPrice, inStock);
+            return ResponseEntity.ok(garmentListingService.list(
+                    filter, GarmentListingService.Sort.fromParam(sort), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Full-text search over the active catalog (in-memory index, BM25 ranked).
+     * Every word must match, either exactly or as a prefix ("cla whi" → Classic White Tee).
+     * Response: { query, total, items: [max limit] }
+     */
+    @GetMapping("/server/garments/search")
+    public GarmentSearchService.SearchResult searchGarments(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "" + GarmentSearchService.DEFAULT_LIMIT) int limit) {
+        return garmentSearchService.search(query, limit);
+    }
+
+    /**
+     * Facet counts for the shop filters under the given selection. Each facet is
+     * counted against every other selected facet, but not its own.
+     * priceBand = under-500 | 500-999 | 1000-1499 | 1500-1999 | 2000-plus
+     * Response: { total, garmentType: {...}, category: {...}, color: {...}, size: {...}, priceBand: {...}, inStock }
+     */
+    @GetMapping("/server/garments/facets")
+    public ResponseEntity<?> getFacetCounts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String garmentType,
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String size,
+            @RequestParam(required = false) String priceBand,
+            @RequestParam(defaultValue = "false") boolean inStock) {
+        try {
+            return ResponseEntity.ok(garmentFacetService.count(new GarmentFacetService.FacetFilter(
+                    categoryId, garmentType, color, size, priceBand, inStock)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Per-size stock for up to 100 garments in one call (product page, listing badges).
+     * Response: { "<garmentId>": { "S": 12, "M": 0, ... }, ... }
+     */
+    @GetMapping("/server/garments/availability")
+    public ResponseEntity<?> getAvailability(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_AVAILABILITY_IDS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_AVAILABILITY_IDS + " ids per request"));
+        }
+        return ResponseEntity.ok(skuInventoryService.availability(new LinkedHashSet<>(ids)));
     }
 
     /**
@@ -41,19 +164,21 @@ public class GarmentController {
      * Response: { mens: [max 4], womens: [max 4], kids: [max 4] }
      */
     @GetMapping("/server/garments/featured")
-    public Map<String, List<GarmentEntity>> getFeaturedGarments() {
-        List<GarmentEntity> mens   = garmentRepository
-                .findByGarmentTypeAndActiveTrueAndFeaturedTrue("mens");
-        List<GarmentEntity> womens = garmentRepository
-                .findByGarmentTypeAndActiveTrueAndFeaturedTrue("womens");
-        List<GarmentEntity> kids   = garmentRepository
-                .findByGarmentTypeAndActiveTrueAndFeaturedTrue("kids");
+    public ResponseEntity<byte[]> getFeaturedGarments(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponseCache.featured().toResponse(ifNoneMatch, acceptEncoding);
+    }
 
-        Map<String, List<GarmentEntity>> result = new HashMap<>();
-        result.put("mens",   mens.size()   > 4 ? mens.subList(0, 4)   : mens);
-        result.put("womens", womens.size() > 4 ? womens.subList(0, 4) : womens);
-        result.put("kids",   kids.size()   > 4 ? kids.subList(0, 4)   : kids);
-        return result;
+    /**
+     * Home page bundle — featured per type, new arrivals, best sellers and top-level categories.
+     * Response: { mens, womens, kids, newArrivals, bestSellers, categories }
+     */
+    @GetMapping("/server/garments/home")
+    public ResponseEntity<byte[]> getHomePage(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponseCache.home().toResponse(ifNoneMatch, acceptEncoding);
     }
 
     // ─────────────────────────────────────────────────────────
@@ -66,6 +191,21 @@ public class GarmentController {
         return garmentRepository.findAll();
     }
 
+    /** Admin/Tech — all garments streamed as NDJSON (default) or CSV; constant memory */
+    @GetMapping(value = "/server/admin/garments/export", produces = { "application/x-ndjson", "text/csv" })
+    public void exportGarments(
+            @RequestParam(required = false) String format,
+            HttpServletResponse response) throws IOException {
+        DataExportService.Format exportFormat;
+        try {
+            exportFormat = DataExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        dataExportService.export(DataExportService.Export.GARMENTS, exportFormat, response);
+    }
+
     /** Admin/Tech — create a new garment */
     @PostMapping("/server/admin/garments")
     public ResponseEntity<GarmentEntity> createGarment(
@@ -76,40 +216,101 @@ public class GarmentController {
         applyRequest(g, request);
         g.setActive(true);
         g.setFeatured(false);
-        GarmentEntity saved = garmentRepository.save(g);
+        GarmentEntity saved = transactionTemplate.execute(status -> {
+            GarmentEntity created = garmentRepository.save(g);
+            skuInventoryService.resetStock(List.of(created));   // the garment and its SKU rows commit together
+            return created;
+        });
+        catalogChanged(saved.getId());
         logger.info("Garment created: id={}, name={}", saved.getId(), saved.getName());
         return ResponseEntity.ok(saved);
     }
 
-    /** Admin/Tech — bulk create (e.g. multiple color variants of one product) */
+    /**
+     * Admin/Tech — bulk create (e.g. multiple color variants of one product).
+     * Invalid rows are reported by index and skipped; valid rows are inserted in one transaction.
+     */
     @PostMapping("/server/admin/garments/bulk")
-    public ResponseEntity<List<GarmentEntity>> createGarmentsBulk(
+    public ResponseEntity<GarmentBulkImportService.ImportResult> createGarmentsBulk(
             @RequestBody List<AdminGarmentRequest> requests) {
 
-        List<GarmentEntity> created = new ArrayList<>();
+        List<GarmentEntity> rows = new ArrayList<>(requests.size());
         for (AdminGarmentRequest r : requests) {
+            if (r == null) { rows.add(null); continue; }
             GarmentEntity g = new GarmentEntity();
             applyRequest(g, r);
             g.setActive(true);
             g.setFeatured(false);
-            created.add(garmentRepository.save(g));
+            rows.add(g);
         }
-        logger.info("Bulk garment creation: {} garments created", created.size());
-        return ResponseEntity.ok(created);
+        GarmentBulkImportService.ImportResult result = garmentBulkImportService.importGarments(rows);
+        if (!result.created().isEmpty()) catalogChanged(null);
+        logger.info("Bulk garment creation: {} garments created, {} rows rejected",
+                result.created().size(), result.errors().size());
+        return ResponseEntity.ok(result);
     }
 
-    /** Admin/Tech — full update of a garment */
+    /**
+     * Admin/Tech — full update of a garment. Send the version the edit started from;
+     * if someone else saved the garment since, the update is rejected with 409.
+     */
     @PutMapping("/server/admin/garments/{id}")
-    public ResponseEntity<GarmentEntity> updateGarment(
+    public ResponseEntity<?> updateGarment(
             @PathVariable Long id,
             @RequestBody AdminGarmentRequest request) {
 
-        return garmentRepository.findById(id).map(g -> {
-            applyRequest(g, request);
-            GarmentEntity saved = garmentRepository.save(g);
-            logger.info("Garment updated: id={}", id);
-            return ResponseEntity.ok(saved);
-        }).orElse(ResponseEntity.notFound().<GarmentEntity>build());
+        GarmentEntity g = garmentRepository.findById(id).orElse(null);
+        if (g == null) return ResponseEntity.notFound().build();
+        if (request.version != null && !request.version.equals(g.getVersion())) {
+            return versionConflict(id, g.getVersion());
+        }
+
+        applyRequest(g, request);
+        GarmentEntity saved;
+        int[] syncedTotal = { -1 };
+        try {
+            // flushed before the SKU writes, which go through JDBC and would otherwise be overwritten at commit
+            saved = transactionTemplate.execute(status -> {
+                GarmentEntity updated = garmentRepository.saveAndFlush(g);
+                if (request.stockQuantity != null) {
+                    skuInventoryService.resetStock(List.of(updated));      // single figure → spread over sizes
+                } else if (request.sizes != null) {
+                    syncedTotal[0] = skuInventoryService.syncSizes(updated);
+                }
+                return updated;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            return versionConflict(id, null);
+        }
+        if (syncedTotal[0] >= 0) saved.setStockQuantity(syncedTotal[0]);
+        catalogChanged(id);
+        logger.info("Garment updated: id={}, version={}", id, saved.getVersion());
+        return ResponseEntity.ok(saved);
+    }
+
+    /**
+     * Admin/Tech — set per-size stock, e.g. { "S": 10, "XL": 0 }. Sizes not listed keep their stock.
+     * Response: { garmentId, stockQuantity, sizes: { size: units } }
+     */
+    @PutMapping("/server/admin/garments/{id}/stock")
+    public ResponseEntity<?> setSizeStock(
+            @PathVariable Long id,
+            @RequestBody Map<String, Integer> stockBySize) {
+
+        GarmentEntity g = garmentRepository.findById(id).orElse(null);
+        if (g == null) return ResponseEntity.notFound().build();
+        try {
+            int total = skuInventoryService.setStock(g, stockBySize);
+            catalogChanged(id);
+            logger.info("Garment stock updated: id={}, total={}", id, total);
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("garmentId", id);
+            res.put("stockQuantity", total);
+            res.put("sizes", skuInventoryService.availability(List.of(id)).getOrDefault(id, Map.of()));
+            return ResponseEntity.ok(res);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /** Admin/Tech — toggle active state */
@@ -121,6 +322,7 @@ public class GarmentController {
         return garmentRepository.findById(id).map(g -> {
             g.setActive(active);
             garmentRepository.save(g);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Garment active=" + active));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
@@ -134,6 +336,7 @@ public class GarmentController {
         return garmentRepository.findById(id).map(g -> {
             g.setFeatured(featured);
             garmentRepository.save(g);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Garment featured=" + featured));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
@@ -143,6 +346,7 @@ public class GarmentController {
     public ResponseEntity<Map<String, String>> deleteGarment(@PathVariable Long id) {
         return garmentRepository.findById(id).map(g -> {
             garmentRepository.delete(g);
+            catalogChanged(id);
             logger.info("Garment deleted: id={}", id);
             return ResponseEntity.ok(Map.of("message", "Garment deleted"));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
@@ -161,6 +365,7 @@ public class GarmentController {
         return garmentRepository.findById(id).map(g -> {
             g.setActive(active);
             garmentRepository.save(g);
+            catalogChanged(id);
             return ResponseEntity.ok(Map.of("message", "Garment updated"));
         }).orElse(ResponseEntity.notFound().<Map<String, String>>build());
     }
@@ -169,6 +374,19 @@ public class GarmentController {
     // HELPERS
     // ─────────────────────────────────────────────────────────
 
+    /** Triggers a catalog snapshot rebuild once the change has committed */
+    private void catalogChanged(Long garmentId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent("garment", garmentId));
+    }
+
+    private ResponseEntity<Map<String, Object>> versionConflict(Long id, Long currentVersion) {
+        logger.info("Garment update rejected: id={} was modified concurrently", id);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "This garment was changed by someone else. Reload it and try again.");
+        if (currentVersion != null) body.put("version", currentVersion);
+        return ResponseEntity.status(409).body(body);
+    }
+
     private void applyRequest(GarmentEntity g, AdminGarmentRequest r) {
         if (r.name              != null) g.setName(r.name);
         if (r.description       != null) g.setDescription(r.description);
@@ -199,5 +417,6 @@ public class GarmentController {
         public String  sizes;              // e.g. "S,M,L,XL,XXL"
         public Integer stockQuantity;      // available stock units
         public Integer costPrice;          // cost price for profit calculation
+        public Long    version;            // update only — version the edit is based on (optional)
     }
 }
@@ -1,6 +1,6 @@
 package com.shop.demo.controller.shop;
 
-import com.shop.demo.service.s3.S3Service;
+import com.shop.demo.service.s3.ImageStorage;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -20,7 +20,7 @@ import java.util.Map;
 public class ImageController {
 
     @Autowired(required = false)
-    private S3Service s3Service;
+    private ImageStorage imageStorage;
 
     /**
      * POST /server/admin/images/upload
@@ -48,13 +48,13 @@ public class ImageController {
                     .body(Map.of("error", "Only image files are allowed"));
         }
 
-        if (s3Service == null) {
+        if (imageStorage == null) {
             return ResponseEntity.status(503)
                     .body(Map.of("error", "S3 image upload is not configured. Set aws.s3.enabled=true and provide credentials in application.properties."));
         }
 
         try {
-            String url = s3Service.uploadFile(file);
+            String url = imageStorage.uploadFile(file);
             return ResponseEntity.ok(Map.of("url", url));
         } catch (IOException e) {
             return ResponseEntity.status(500)
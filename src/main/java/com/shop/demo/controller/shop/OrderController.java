@@ -1,22 +1,22 @@
 package com.shop.demo.controller.shop;
 
 import com.shop.demo.database.entity.project.shop.CartItemEntity;
-import com.shop.demo.database.entity.project.shop.GarmentEntity;
 import com.shop.demo.database.entity.project.shop.OrderEntity;
-import com.shop.demo.database.entity.project.shop.OrderItemEntity;
-import com.shop.demo.database.repository.projectRepository.shop.CartItemRepository;
-import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
-import com.shop.demo.database.repository.projectRepository.shop.OrderItemRepository;
 import com.shop.demo.database.repository.projectRepository.shop.OrderRepository;
 import com.shop.demo.logMaintain.ApplicationLogger;
 import com.shop.demo.service.activitylog.ActivityLogService;
+import com.shop.demo.service.cart.CartService;
+import com.shop.demo.service.idempotency.IdempotencyService;
+import com.shop.demo.service.inventory.OutOfStockException;
+import com.shop.demo.service.order.OrderHistoryService;
+import com.shop.demo.service.order.OrderPlacementService;
+import com.shop.demo.service.order.OrderPlacementService.Checkout;
+import com.shop.demo.service.order.OrderPlacementService.PlacedOrder;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,27 +26,27 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final CartItemRepository cartItemRepository;
-    private final GarmentRepository garmentRepository;
+    private final OrderHistoryService orderHistoryService;
+    private final CartService cartService;
     private final ActivityLogService activityLogService;
-    private final TransactionTemplate transactionTemplate;
+    private final OrderPlacementService orderPlacementService;
+    private final IdempotencyService idempotencyService;
     private final ApplicationLogger logger;
 
     public OrderController(OrderRepository orderRepository,
-                           OrderItemRepository orderItemRepository,
-                           CartItemRepository cartItemRepository,
-                           GarmentRepository garmentRepository,
+                           OrderHistoryService orderHistoryService,
+                           CartService cartService,
                            ActivityLogService activityLogService,
-                           TransactionTemplate transactionTemplate,
+                           OrderPlacementService orderPlacementService,
+                           IdempotencyService idempotencyService,
                            ApplicationLogger logger) {
-        this.orderRepository     = orderRepository;
-        this.orderItemRepository = orderItemRepository;
-        this.cartItemRepository  = cartItemRepository;
-        this.garmentRepository   = garmentRepository;
-        this.activityLogService  = activityLogService;
-        this.transactionTemplate = transactionTemplate;
-        this.logger              = logger;
+        this.orderRepository       = orderRepository;
+        this.orderHistoryService   = orderHistoryService;
+        this.cartService           = cartService;
+        this.activityLogService    = activityLogService;
+        this.orderPlacementService = orderPlacementService;
+        this.idempotencyService    = idempotencyService;
+        this.logger                = logger;
     }
 
     public static class CheckoutRequest {
@@ -67,100 +67,96 @@ public class OrderController {
         return ResponseEntity.ok(orderRepository.findByUserIdOrderByCreatedAtDesc(userId));
     }
 
-    /** GET /server/user/orders/{id} – single order with items */
+    /**
+     * GET /server/user/orders/history – keyset-paginated order summaries, newest first.
+     * Pass the returned nextCursor back as cursor to fetch the following page.
+     * Response: { items: [{ id, createdAt, totalAmount, orderStatus, paymentStatus, itemCount, thumbnailUrl }],
+     *             nextCursor: "..." | null }
+     */
+    @GetMapping("/server/user/orders/history")
+    public ResponseEntity<?> getOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderHistoryService.DEFAULT_LIMIT) int limit,
+            @RequestAttribute(value = "userId", required = false) Long userId) {
+        if (userId == null) return ResponseEntity.status(401).build();
+        try {
+            return ResponseEntity.ok(orderHistoryService.history(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** GET /server/user/orders/{id} – single order with items and garment names (one query) */
     @GetMapping("/server/user/orders/{id}")
-    public ResponseEntity<Map<String, Object>> getOrderById(
+    public ResponseEntity<OrderHistoryService.OrderDetail> getOrderById(
             @PathVariable Long id,
             @RequestAttribute(value = "userId", required = false) Long userId) {
         if (userId == null) return ResponseEntity.status(401).build();
 
-        return orderRepository.findById(id).map(order -> {
-            if (!order.getUserId().equals(userId)) {
-                return ResponseEntity.status(403).<Map<String, Object>>build();
-            }
-            List<OrderItemEntity> items = orderItemRepository.findByOrderId(id);
-            Map<String, Object> result = new HashMap<>();
-            result.put("order", order);
-            result.put("items", items);
-            return ResponseEntity.ok(result);
-        }).orElse(ResponseEntity.notFound().<Map<String, Object>>build());
+        OrderHistoryService.OrderDetail detail = orderHistoryService.detail(id);
+        if (detail == null) return ResponseEntity.notFound().build();
+        if (!detail.order().getUserId().equals(userId)) return ResponseEntity.status(403).build();
+        return ResponseEntity.ok(detail);
     }
 
-    /** POST /server/user/checkout – place order from cart (mock payment) */
+    /**
+     * POST /server/user/checkout – place order from cart (mock payment).
+     * Send an Idempotency-Key header to make retries replay the first response.
+     */
     @PostMapping("/server/user/checkout")
-    public ResponseEntity<Map<String, Object>> checkout(
+    public ResponseEntity<?> checkout(
             @RequestBody CheckoutRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestAttribute(value = "userId", required = false) Long userId,
             HttpServletRequest httpRequest) {
 
         if (userId == null) return ResponseEntity.status(401).build();
+        return idempotencyService.execute(IdempotencyService.SCOPE_CHECKOUT, idempotencyKey, userId,
+                () -> placeOrder(request, IdempotencyService.Key.of(IdempotencyService.SCOPE_CHECKOUT, idempotencyKey),
+                        userId, httpRequest));
+    }
 
-        List<CartItemEntity> cartItems = cartItemRepository.findByUserId(userId);
+    private ResponseEntity<Map<String, Object>> placeOrder(CheckoutRequest request,
+                                                           IdempotencyService.Key idempotencyKey,
+                                                           Long userId,
+                                                           HttpServletRequest httpRequest) {
+        List<CartItemEntity> cartItems = cartService.items(userId);
         if (cartItems.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Your cart is empty"));
         }
 
-        Map<String, Object> result = transactionTemplate.execute(status -> {
-            // compute total
-            BigDecimal total = BigDecimal.ZERO;
-            for (CartItemEntity ci : cartItems) {
-                GarmentEntity g = garmentRepository.findById(ci.getGarmentId()).orElse(null);
-                if (g != null && g.getBasePrice() != null) {
-                    total = total.add(BigDecimal.valueOf(g.getBasePrice()).multiply(BigDecimal.valueOf(ci.getQuantity())));
-                }
-            }
-
-            // create order
-            OrderEntity order = new OrderEntity();
-            order.setUserId(userId);
-            order.setTotalAmount(total);
-            order.setPaymentStatus(OrderEntity.PaymentStatus.PAID);
-            order.setPaymentMethod(request.paymentMethod);
-            order.setPaymentRef(request.paymentRef != null ? request.paymentRef : "MOCK-" + System.currentTimeMillis());
-            order.setShippingName(request.shippingName);
-            order.setShippingAddress(request.shippingAddress);
-            order.setShippingCity(request.shippingCity);
-            order.setShippingPincode(request.shippingPincode);
-            order.setShippingPhone(request.shippingPhone);
-            order.setOrderStatus(OrderEntity.OrderStatus.PLACED);
-            OrderEntity savedOrder = orderRepository.save(order);
-
-            // create order items + decrement stock
-            for (CartItemEntity ci : cartItems) {
-                GarmentEntity g = garmentRepository.findById(ci.getGarmentId()).orElse(null);
-                BigDecimal price = (g != null && g.getBasePrice() != null)
-                        ? BigDecimal.valueOf(g.getBasePrice())
-                        : BigDecimal.ZERO;
-                OrderItemEntity oi = new OrderItemEntity();
-                oi.setOrderId(savedOrder.getId());
-                oi.setGarmentId(ci.getGarmentId());
-                oi.setSize(ci.getSize());
-                oi.setQuantity(ci.getQuantity());
-                oi.setUnitPrice(price);
-                orderItemRepository.save(oi);
-                // decrement stock (floor at 0)
-                if (g != null) {
-                    int current = g.getStockQuantity() != null ? g.getStockQuantity() : 0;
-                    g.setStockQuantity(Math.max(0, current - ci.getQuantity()));
-                    garmentRepository.save(g);
-                }
-            }
-
-            // clear cart
-            cartItemRepository.deleteByUserId(userId);
-
-            Map<String, Object> res = new HashMap<>();
-            res.put("orderId", savedOrder.getId());
-            res.put("totalAmount", savedOrder.getTotalAmount());
-            res.put("message", "Order placed successfully");
-            return res;
-        });
-
-        if (result == null) {
+        PlacedOrder placed;
+        try {
+            placed = orderPlacementService.place(userId, cartItems, new Checkout(
+                    request.paymentMethod,
+                    request.paymentRef != null ? request.paymentRef : "MOCK-" + System.currentTimeMillis(),
+                    request.shippingName,
+                    request.shippingAddress,
+                    request.shippingCity,
+                    request.shippingPincode,
+                    request.shippingPhone,
+                    false,
+                    null,
+                    idempotencyKey));
+        } catch (OutOfStockException e) {
+            logger.warn("Checkout rejected: userId={}, {}", userId, e.getMessage());
+            return ResponseEntity.status(409).body(Map.of(
+                    "error", "Some items in your cart are no longer in stock",
+                    "outOfStock", e.getShortages()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        if (placed == null) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Checkout failed"));
         }
 
-        Long orderId = (Long) result.get("orderId");
+        Long orderId = placed.order().getId();
+        Map<String, Object> result = new HashMap<>();
+        result.put("orderId", orderId);
+        result.put("totalAmount", placed.order().getTotalAmount());
+        result.put("message", "Order placed successfully");
+
         activityLogService.logPurchase(userId, orderId, httpRequest.getRemoteAddr());
         logger.info("Order placed: userId={}, orderId={}", userId, orderId);
         return ResponseEntity.ok(result);
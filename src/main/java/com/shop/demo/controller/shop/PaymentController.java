@@ -1,31 +1,31 @@
 package com.shop.demo.controller.shop;
 
-import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
-import com.razorpay.RazorpayException;
 import com.shop.demo.database.entity.project.shop.CartItemEntity;
-import com.shop.demo.database.entity.project.shop.GarmentEntity;
-import com.shop.demo.database.entity.project.shop.OrderEntity;
-import com.shop.demo.database.entity.project.shop.OrderItemEntity;
-import com.shop.demo.database.repository.projectRepository.shop.CartItemRepository;
-import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
-import com.shop.demo.database.repository.projectRepository.shop.OrderItemRepository;
-import com.shop.demo.database.repository.projectRepository.shop.OrderRepository;
 import com.shop.demo.logMaintain.ApplicationLogger;
 import com.shop.demo.service.activitylog.ActivityLogService;
-import com.shop.demo.service.shiprocket.ShiprocketService;
+import com.shop.demo.service.cart.CartService;
+import com.shop.demo.service.http.OutboundCallRejectedException;
+import com.shop.demo.service.idempotency.IdempotencyService;
+import com.shop.demo.service.inventory.InventoryReservationService;
+import com.shop.demo.service.inventory.OutOfStockException;
+import com.shop.demo.service.order.OrderPlacementService;
+import com.shop.demo.service.order.OrderPlacementService.Checkout;
+import com.shop.demo.service.order.OrderPlacementService.PlacedOrder;
+import com.shop.demo.service.payment.RazorpayGateway;
+import com.shop.demo.service.shiprocket.ShipmentDispatcher;
+import com.shop.demo.service.webhook.HmacVerifier;
+import com.shop.demo.service.webhook.WebhookInboxService;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,60 +43,110 @@ public class PaymentController {
     @Value("${razorpay.webhook-secret:}")
     private String webhookSecret;
 
-    private final OrderRepository         orderRepository;
-    private final OrderItemRepository     orderItemRepository;
-    private final CartItemRepository      cartItemRepository;
-    private final GarmentRepository       garmentRepository;
-    private final ActivityLogService      activityLogService;
-    private final TransactionTemplate     transactionTemplate;
-    private final ShiprocketService       shiprocketService;
-    private final ApplicationLogger       logger;
-
-    public PaymentController(OrderRepository orderRepository,
-                             OrderItemRepository orderItemRepository,
-                             CartItemRepository cartItemRepository,
-                             GarmentRepository garmentRepository,
+    @Value("${shiprocket.webhook-token:}")
+    private String shiprocketWebhookToken;
+
+    private HmacVerifier paymentSignature;   // checkout signatures, keyed with the API secret
+    private HmacVerifier webhookSignature;
+
+    private final CartService                 cartService;
+    private final ActivityLogService          activityLogService;
+    private final OrderPlacementService       orderPlacementService;
+    private final InventoryReservationService inventoryReservationService;
+    private final IdempotencyService          idempotencyService;
+    private final RazorpayGateway             razorpayGateway;
+    private final ShipmentDispatcher          shipmentDispatcher;
+    private final WebhookInboxService         webhookInboxService;
+    private final ApplicationLogger           logger;
+
+    public PaymentController(CartService cartService,
                              ActivityLogService activityLogService,
-                             TransactionTemplate transactionTemplate,
-                             ShiprocketService shiprocketService,
+                             OrderPlacementService orderPlacementService,
+                             InventoryReservationService inventoryReservationService,
+                             IdempotencyService idempotencyService,
+                             RazorpayGateway razorpayGateway,
+                             ShipmentDispatcher shipmentDispatcher,
+                             WebhookInboxService webhookInboxService,
                              ApplicationLogger logger) {
-        this.orderRepository     = orderRepository;
-        this.orderItemRepository = orderItemRepository;
-        this.cartItemRepository  = cartItemRepository;
-        this.garmentRepository   = garmentRepository;
-        this.activityLogService  = activityLogService;
-        this.transactionTemplate = transactionTemplate;
-        this.shiprocketService   = shiprocketService;
-        this.logger              = logger;
+        this.cartService                 = cartService;
+        this.activityLogService          = activityLogService;
+        this.orderPlacementService       = orderPlacementService;
+        this.inventoryReservationService = inventoryReservationService;
+        this.idempotencyService          = idempotencyService;
+        this.razorpayGateway             = razorpayGateway;
+        this.shipmentDispatcher          = shipmentDispatcher;
+        this.webhookInboxService         = webhookInboxService;
+        this.logger                      = logger;
+    }
+
+    @PostConstruct
+    void initSignatureVerifiers() {
+        paymentSignature = new HmacVerifier(keySecret);
+        webhookSignature = new HmacVerifier(webhookSecret);
     }
 
-    // ── Step 1: create Razorpay order ────────────────────────
+    // ── Step 1: create Razorpay order → hold the cart's stock ─
     @PostMapping("/server/user/payment/create-order")
     public ResponseEntity<?> createOrder(
             @RequestBody CreateOrderRequest req,
             @RequestAttribute(value = "userId", required = false) Long userId) {
 
         if (userId == null) return ResponseEntity.status(401).build();
+
+        List<CartItemEntity> cartItems = cartService.items(userId);
+        if (cartItems.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Cart is empty"));
+        }
+
+        RazorpayGateway.RazorpayOrder order;
         try {
-            RazorpayClient client = new RazorpayClient(keyId, keySecret);
-            JSONObject params = new JSONObject();
-            params.put("amount",   req.amountInPaise);
-            params.put("currency", "INR");
-            params.put("receipt",  "al_" + System.currentTimeMillis());
-            Order order = client.orders.create(params);
-
-            logger.info("Razorpay order created: id={}, userId={}", order.get("id"), userId);
-            return ResponseEntity.ok(Map.of(
-                    "razorpayOrderId", order.get("id").toString(),
-                    "amount",          order.get("amount"),
-                    "currency",        "INR",
-                    "keyId",           keyId
-            ));
-        } catch (RazorpayException e) {
+            order = razorpayGateway.createOrder(req.amountInPaise, "al_" + System.currentTimeMillis());
+        } catch (OutboundCallRejectedException e) {
+            logger.warn("Razorpay order creation refused for userId={}: {}", userId, e.getMessage());
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "Payments are temporarily unavailable. Please try again shortly."));
+        } catch (RuntimeException e) {
             logger.info("Razorpay order creation failed for userId={}: {}", userId, e.getMessage());
             return ResponseEntity.status(500)
                     .body(Map.of("error", "Payment initialization failed. Check Razorpay configuration."));
         }
+        String razorpayOrderId = order.id();
+
+        // Hold the cart until verify, failure or expiry — the Razorpay order is simply left unpaid if this fails
+        Instant holdExpiresAt;
+        try {
+            holdExpiresAt = inventoryReservationService.reserve(userId, razorpayOrderId, cartItems);
+        } catch (OutOfStockException e) {
+            logger.info("Payment not started: userId={}, {}", userId, e.getMessage());
+            return ResponseEntity.status(409).body(Map.of(
+                    "error", "Some items in your cart are no longer in stock",
+                    "outOfStock", e.getShortages()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        logger.info("Razorpay order created: id={}, userId={}, hold until {}", razorpayOrderId, userId, holdExpiresAt);
+        return ResponseEntity.ok(Map.of(
+                "razorpayOrderId", razorpayOrderId,
+                "amount",          order.amount(),
+                "currency",        "INR",
+                "keyId",           keyId,
+                "holdExpiresAt",   holdExpiresAt.toString()
+        ));
+    }
+
+    // ── Payment dismissed / failed in the browser → release the hold ─
+    @PostMapping("/server/user/payment/release")
+    public ResponseEntity<?> releaseHold(
+            @RequestBody ReleaseRequest req,
+            @RequestAttribute(value = "userId", required = false) Long userId) {
+
+        if (userId == null) return ResponseEntity.status(401).build();
+        if (req.razorpayOrderId == null || req.razorpayOrderId.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "razorpayOrderId is required"));
+        }
+        int units = inventoryReservationService.release(req.razorpayOrderId, userId);
+        return ResponseEntity.ok(Map.of("released", units));
     }
 
     // ── Step 2: verify signature → place order → shiprocket ──
@@ -109,170 +159,108 @@ public class PaymentController {
         if (userId == null) return ResponseEntity.status(401).build();
 
         // Verify HMAC-SHA256 signature
-        if (!verifyHmac(req.razorpayOrderId + "|" + req.razorpayPaymentId, keySecret, req.razorpaySignature)) {
+        if (!paymentSignature.verify(req.razorpayOrderId + "|" + req.razorpayPaymentId, req.razorpaySignature)) {
             logger.info("Razorpay signature mismatch for userId={}", userId);
             return ResponseEntity.status(400).body(Map.of("error", "Payment verification failed"));
         }
 
+        // A payment places at most one order — retries replay the first response
+        return idempotencyService.execute(IdempotencyService.SCOPE_VERIFY, req.razorpayPaymentId, userId,
+                () -> placeOrder(req, userId, httpRequest));
+    }
+
+    private ResponseEntity<?> placeOrder(VerifyRequest req, Long userId, HttpServletRequest httpRequest) {
         // Place order atomically
-        List<CartItemEntity> cartItems = cartItemRepository.findByUserId(userId);
+        List<CartItemEntity> cartItems = cartService.items(userId);
         if (cartItems.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Cart is empty"));
         }
 
-        Map<String, Object> result = transactionTemplate.execute(status -> {
-            BigDecimal total = BigDecimal.ZERO;
-            for (CartItemEntity ci : cartItems) {
-                GarmentEntity g = garmentRepository.findById(ci.getGarmentId()).orElse(null);
-                if (g != null && g.getBasePrice() != null) {
-                    total = total.add(BigDecimal.valueOf(g.getBasePrice())
-                            .multiply(BigDecimal.valueOf(ci.getQuantity())));
-                }
-            }
-
-            OrderEntity order = new OrderEntity();
-            order.setUserId(userId);
-            order.setTotalAmount(total);
-            order.setPaymentStatus(OrderEntity.PaymentStatus.PAID);
-            order.setPaymentMethod("razorpay");
-            order.setPaymentRef(req.razorpayPaymentId);
-            order.setShippingName(req.shippingName);
-            order.setShippingAddress(req.shippingAddress);
-            order.setShippingCity(req.shippingCity);
-            order.setShippingPincode(req.shippingPincode);
-            order.setShippingPhone(req.shippingPhone);
-            order.setOrderStatus(OrderEntity.OrderStatus.PLACED);
-            OrderEntity saved = orderRepository.save(order);
-
-            for (CartItemEntity ci : cartItems) {
-                GarmentEntity g = garmentRepository.findById(ci.getGarmentId()).orElse(null);
-                BigDecimal price = (g != null && g.getBasePrice() != null)
-                        ? BigDecimal.valueOf(g.getBasePrice()) : BigDecimal.ZERO;
-                OrderItemEntity oi = new OrderItemEntity();
-                oi.setOrderId(saved.getId());
-                oi.setGarmentId(ci.getGarmentId());
-                oi.setSize(ci.getSize());
-                oi.setQuantity(ci.getQuantity());
-                oi.setUnitPrice(price);
-                orderItemRepository.save(oi);
-            }
-
-            cartItemRepository.deleteByUserId(userId);
-
-            Map<String, Object> res = new HashMap<>();
-            res.put("id",      saved.getId());
-            res.put("orderId", saved.getId());
-            res.put("message", "Order placed successfully");
-            return res;
-        });
-
-        if (result == null) {
+        PlacedOrder placed;
+        try {
+            placed = orderPlacementService.place(userId, cartItems, new Checkout(
+                    "razorpay",
+                    req.razorpayPaymentId,
+                    req.shippingName,
+                    req.shippingAddress,
+                    req.shippingCity,
+                    req.shippingPincode,
+                    req.shippingPhone,
+                    true,
+                    req.razorpayOrderId,
+                    IdempotencyService.Key.of(IdempotencyService.SCOPE_VERIFY, req.razorpayPaymentId)));
+        } catch (OutOfStockException e) {
+            // the payment is already captured — leave a trail for the refund
+            logger.error("Paid order rejected, refund needed: userId={}, payment={}, {}",
+                    userId, req.razorpayPaymentId, e.getMessage());
+            return ResponseEntity.status(409).body(Map.of(
+                    "error", "Some items in your cart went out of stock. Your payment will be refunded.",
+                    "outOfStock", e.getShortages()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        if (placed == null) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Order placement failed"));
         }
 
-        Long orderId = (Long) result.get("id");
+        Long orderId = placed.order().getId();
+        Map<String, Object> result = new HashMap<>();
+        result.put("id",      orderId);
+        result.put("orderId", orderId);
+        result.put("message", "Order placed successfully");
+
         activityLogService.logPurchase(userId, orderId, httpRequest.getRemoteAddr());
         logger.info("Order placed via Razorpay: userId={}, orderId={}", userId, orderId);
 
-        // Trigger Shiprocket (best-effort — never fails the response)
-        try {
-            OrderEntity placed = orderRepository.findById(orderId).orElse(null);
-            if (placed != null) {
-                List<OrderItemEntity> items = orderItemRepository.findByOrderId(orderId);
-                String awb = shiprocketService.createShipment(placed, items, garmentRepository);
-                if (awb != null) {
-                    placed.setTrackingAwb(awb);
-                    orderRepository.save(placed);
-                    result.put("trackingAwb", awb);
-                }
-            }
-        } catch (Exception e) {
-            logger.info("Shiprocket order creation skipped for orderId={}: {}", orderId, e.getMessage());
-        }
+        // the shipment was queued with the order — hand it to the dispatcher now, off the response path
+        shipmentDispatcher.wake();
 
         return ResponseEntity.ok(result);
     }
 
     // ── Razorpay Webhook (payment.captured / payment.failed) ─
+    // Verified and stored in the inbox only; WebhookInboxService applies it in the background
     @PostMapping(value = "/server/webhook/razorpay", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> razorpayWebhook(
             @RequestBody String rawBody,
-            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature) {
+            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
 
-        if (webhookSecret.isBlank() || signature == null
-                || !verifyHmac(rawBody, webhookSecret, signature)) {
+        if (!webhookSignature.verify(rawBody, signature)) {
             logger.info("Razorpay webhook signature invalid");
             return ResponseEntity.status(400).body(Map.of("error", "Invalid signature"));
         }
 
-        try {
-            JSONObject payload = new JSONObject(rawBody);
-            String event = payload.optString("event", "");
-            logger.info("Razorpay webhook received: event={}", event);
-
-            if ("payment.captured".equals(event)) {
-                String paymentId = payload.getJSONObject("payload")
-                        .getJSONObject("payment").getJSONObject("entity").getString("id");
-                orderRepository.findByPaymentRef(paymentId).ifPresent(order -> {
-                    order.setPaymentStatus(OrderEntity.PaymentStatus.PAID);
-                    orderRepository.save(order);
-                    logger.info("Webhook: order {} marked PAID via payment {}", order.getId(), paymentId);
-                });
-            } else if ("payment.failed".equals(event)) {
-                String paymentId = payload.getJSONObject("payload")
-                        .getJSONObject("payment").getJSONObject("entity").getString("id");
-                orderRepository.findByPaymentRef(paymentId).ifPresent(order -> {
-                    order.setPaymentStatus(OrderEntity.PaymentStatus.FAILED);
-                    orderRepository.save(order);
-                    logger.info("Webhook: order {} marked FAILED via payment {}", order.getId(), paymentId);
-                });
-            }
-        } catch (Exception e) {
-            logger.info("Razorpay webhook processing error: {}", e.getMessage());
-        }
+        // Razorpay redelivers until it sees a 2xx — the inbox keeps each event id once
+        webhookInboxService.accept(WebhookInboxService.PROVIDER_RAZORPAY, eventId, rawBody);
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
 
     // ── Shiprocket Webhook (shipment status updates) ──────────
+    // Shiprocket signs nothing — it echoes the token set in its dashboard in x-api-key.
+    // Without a configured token every call is refused, so the public endpoint cannot fill the inbox
     @PostMapping(value = "/server/webhook/shiprocket", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> shiprocketWebhook(@RequestBody String rawBody) {
-        try {
-            JSONObject payload = new JSONObject(rawBody);
-            String awb    = payload.optString("awb", "");
-            String status = payload.optString("current_status", "");
-            logger.info("Shiprocket webhook: awb={}, status={}", awb, status);
-
-            if (!awb.isBlank()) {
-                orderRepository.findByTrackingAwb(awb).ifPresent(order -> {
-                    if ("Delivered".equalsIgnoreCase(status)) {
-                        order.setOrderStatus(OrderEntity.OrderStatus.DELIVERED);
-                    } else if ("Shipped".equalsIgnoreCase(status) || "In Transit".equalsIgnoreCase(status)) {
-                        order.setOrderStatus(OrderEntity.OrderStatus.SHIPPED);
-                    } else if ("Out For Delivery".equalsIgnoreCase(status)) {
-                        order.setOrderStatus(OrderEntity.OrderStatus.SHIPPED);
-                    }
-                    orderRepository.save(order);
-                    logger.info("Shiprocket webhook: order {} status → {}", order.getId(), status);
-                });
-            }
-        } catch (Exception e) {
-            logger.info("Shiprocket webhook processing error: {}", e.getMessage());
+    public ResponseEntity<?> shiprocketWebhook(
+            @RequestBody String rawBody,
+            @RequestHeader(value = "x-api-key", required = false) String token) {
+
+        if (!tokenMatches(shiprocketWebhookToken, token)) {
+            logger.info("Shiprocket webhook token invalid");
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid token"));
         }
+        if (rawBody.length() > WebhookInboxService.MAX_PAYLOAD_CHARS) {
+            return ResponseEntity.status(413).body(Map.of("error", "Payload too large"));
+        }
+
+        // Shiprocket sends no event id — identical redeliveries dedupe on the payload digest
+        webhookInboxService.accept(WebhookInboxService.PROVIDER_SHIPROCKET, null, rawBody);
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
 
-    // ── HMAC-SHA256 helper ────────────────────────────────────
-    private boolean verifyHmac(String data, String secret, String expectedHex) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            return sb.toString().equals(expectedHex);
-        } catch (Exception e) {
-            return false;
-        }
+    private static boolean tokenMatches(String expected, String actual) {
+        if (expected == null || expected.isBlank() || actual == null) return false;
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
     }
 
     // ── DTOs ──────────────────────────────────────────────────
@@ -280,6 +268,10 @@ public class PaymentController {
         public long amountInPaise;
     }
 
+    public static class ReleaseRequest {
+        public String razorpayOrderId;
+    }
+
     public static class VerifyRequest {
         public String razorpayOrderId;
         public String razorpayPaymentId;
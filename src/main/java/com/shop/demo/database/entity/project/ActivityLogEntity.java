@@ -8,7 +8,9 @@ import java.time.LocalDateTime;
 public class ActivityLogEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "activity_log_ids")
+    @TableGenerator(name = "activity_log_ids", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "activity_logs", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
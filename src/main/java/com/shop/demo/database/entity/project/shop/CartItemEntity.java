@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 public class CartItemEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)   // rows are written by CartService's upsert
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -23,6 +23,9 @@ public class CartItemEntity {
     @Column(name = "quantity")
     private Integer quantity = 1;
 
+    @Column(name = "price_at_add")
+    private Integer priceAtAdd;   // base price when the line was first added — flags later price changes
+
     @Column(name = "added_at", nullable = false, updatable = false)
     private LocalDateTime addedAt;
 
@@ -39,6 +42,8 @@ public class CartItemEntity {
     public void setSize(String size) { this.size = size; }
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    public Integer getPriceAtAdd() { return priceAtAdd; }
+    public void setPriceAtAdd(Integer priceAtAdd) { this.priceAtAdd = priceAtAdd; }
     public LocalDateTime getAddedAt() { return addedAt; }
     public void setAddedAt(LocalDateTime addedAt) { this.addedAt = addedAt; }
 }
@@ -19,7 +19,7 @@ public class GarmentEntity {
     private Long categoryId;      // FK → categories.id (nullable)
 
     @Column(name = "base_price")
-    private Integer basePrice;
+    private Integer basePrice = 0;
 
     private boolean active = true;
 
@@ -42,12 +42,20 @@ public class GarmentEntity {
     @Column(name = "image_url", length = 512)
     private String imageUrl;
 
-    @Column(name = "stock_quantity")
+    // stock_quantity and units_sold are maintained by set-based SQL (SkuInventoryService) —
+    // never written back from an entity, so an admin save cannot overwrite sales made meanwhile
+    @Column(name = "stock_quantity", updatable = false)
     private Integer stockQuantity = 0;
 
     @Column(name = "cost_price")
     private Integer costPrice = 0;
 
+    @Column(name = "units_sold", updatable = false)
+    private Integer unitsSold = 0;   // popularity sort key — incremented at checkout
+
+    @Version
+    private Long version;            // optimistic lock for admin edits
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getName() { return name; }
@@ -80,4 +88,8 @@ public class GarmentEntity {
     public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
     public Integer getCostPrice() { return costPrice; }
     public void setCostPrice(Integer costPrice) { this.costPrice = costPrice; }
+    public Integer getUnitsSold() { return unitsSold; }
+    public void setUnitsSold(Integer unitsSold) { this.unitsSold = unitsSold; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
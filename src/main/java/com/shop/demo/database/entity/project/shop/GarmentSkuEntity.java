@@ -0,0 +1,31 @@
+package com.shop.demo.database.entity.project.shop;
+
+import jakarta.persistence.*;
+
+/** Per-size stock for a garment — one row per (garment, size) */
+@Entity
+@Table(name = "garment_skus")
+public class GarmentSkuEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "garment_id", nullable = false)
+    private Long garmentId;
+
+    @Column(name = "size", nullable = false, length = 10)
+    private String size;
+
+    @Column(name = "stock_quantity", nullable = false)
+    private Integer stockQuantity = 0;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getGarmentId() { return garmentId; }
+    public void setGarmentId(Long garmentId) { this.garmentId = garmentId; }
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+}
@@ -12,7 +12,9 @@ public class OrderEntity {
     public enum OrderStatus { PLACED, PROCESSING, SHIPPED, DELIVERED, CANCELLED }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
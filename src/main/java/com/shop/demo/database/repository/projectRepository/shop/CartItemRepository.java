@@ -2,14 +2,16 @@ package com.shop.demo.database.repository.projectRepository.shop;
 
 import com.shop.demo.database.entity.project.shop.CartItemEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Optional;
-
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItemEntity, Long> {
-    List<CartItemEntity> findByUserId(Long userId);
-    Optional<CartItemEntity> findByUserIdAndGarmentIdAndSize(Long userId, Long garmentId, String size);
-    void deleteByUserId(Long userId);
+
+    /** Single DELETE statement — the derived deleteBy would load and remove rows one by one */
+    @Modifying
+    @Query("DELETE FROM CartItemEntity c WHERE c.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
 }
@@ -2,6 +2,9 @@ package com.shop.demo.database.repository.projectRepository.shop;
 
 import com.shop.demo.database.entity.project.shop.CategoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,68 @@ public interface CategoryRepository extends JpaRepository<CategoryEntity, Long>
     List<CategoryEntity> findAllByOrderByDepthAscDisplayOrderAsc();
 
     List<CategoryEntity> findByActiveTrueOrderByDepthAscDisplayOrderAsc();
+
+    // ── Closure table (category_closure) ─────────────────────────────────────
+
+    /** Category plus every descendant (active or not), shallowest first */
+    @Query(value = "SELECT c.* FROM categories c " +
+                   "JOIN category_closure cc ON cc.descendant_id = c.id " +
+                   "WHERE cc.ancestor_id = :id " +
+                   "ORDER BY cc.depth, c.display_order", nativeQuery = true)
+    List<CategoryEntity> findSubtree(@Param("id") Long id);
+
+    @Query(value = "SELECT COUNT(*) FROM category_closure " +
+                   "WHERE ancestor_id = :ancestorId AND descendant_id = :descendantId", nativeQuery = true)
+    long countPath(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
+    @Query(value = "SELECT COUNT(*) FROM category_closure WHERE depth = 0", nativeQuery = true)
+    long countClosureSelfRows();
+
+    @Query(value = "SELECT MAX(display_order) FROM categories WHERE parent_id <=> :parentId", nativeQuery = true)
+    Integer findMaxDisplayOrder(@Param("parentId") Long parentId);
+
+    /** Links a new leaf: a self row plus one row per ancestor of its parent */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT ancestor_id, :id, depth + 1 FROM category_closure WHERE descendant_id = :parentId " +
+                   "UNION ALL SELECT :id, :id, 0", nativeQuery = true)
+    int insertLeafPaths(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /** Detaches a subtree: removes every path from outside the subtree into it */
+    @Modifying
+    @Query(value = "DELETE cc FROM category_closure cc " +
+                   "JOIN category_closure sub ON sub.descendant_id = cc.descendant_id AND sub.ancestor_id = :id " +
+                   "LEFT JOIN category_closure own ON own.ancestor_id = :id AND own.descendant_id = cc.ancestor_id " +
+                   "WHERE own.ancestor_id IS NULL", nativeQuery = true)
+    int deleteExternalPaths(@Param("id") Long id);
+
+    /** Attaches a detached subtree below newParentId: cross product of its ancestors and the subtree */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1 " +
+                   "FROM category_closure sup JOIN category_closure sub " +
+                   "ON sup.descendant_id = :newParentId AND sub.ancestor_id = :id", nativeQuery = true)
+    int insertSubtreePaths(@Param("id") Long id, @Param("newParentId") Long newParentId);
+
+    /** Re-derives categories.depth for a subtree whose root now sits at rootDepth */
+    @Modifying
+    @Query(value = "UPDATE categories c JOIN category_closure cc ON cc.descendant_id = c.id AND cc.ancestor_id = :id " +
+                   "SET c.depth = :rootDepth + cc.depth", nativeQuery = true)
+    int updateSubtreeDepth(@Param("id") Long id, @Param("rootDepth") int rootDepth);
+
+    @Modifying
+    @Query(value = "DELETE FROM category_closure", nativeQuery = true)
+    int deleteAllClosure();
+
+    /** Rebuilds the whole closure from parent_id (depth-capped so a bad cycle cannot recurse forever) */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (" +
+                   "  SELECT id, id, 0 FROM categories " +
+                   "  UNION ALL " +
+                   "  SELECT p.ancestor_id, c.id, p.depth + 1 FROM paths p " +
+                   "  JOIN categories c ON c.parent_id = p.descendant_id WHERE p.depth < 32" +
+                   ") SELECT ancestor_id, descendant_id, MIN(depth) FROM paths " +
+                   "GROUP BY ancestor_id, descendant_id", nativeQuery = true)
+    int insertAllClosurePaths();
 }
@@ -2,6 +2,7 @@ package com.shop.demo.database.repository.projectRepository.shop;
 
 import com.shop.demo.database.entity.project.shop.GarmentEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,11 @@ public interface GarmentRepository extends JpaRepository<GarmentEntity, Long> {
 
     /** Active + featured filtered by gender type — home page gender buckets */
     List<GarmentEntity> findByGarmentTypeAndActiveTrueAndFeaturedTrue(String garmentType);
+
+    /** Active garments running low — admin dashboard */
+    List<GarmentEntity> findByActiveTrueAndStockQuantityLessThanOrderByStockQuantityAsc(Integer threshold);
+
+    /** Sum of base price × stock over active garments — admin dashboard */
+    @Query("SELECT COALESCE(SUM(CAST(g.basePrice AS long) * g.stockQuantity), 0) FROM GarmentEntity g WHERE g.active = true")
+    long activeStockValue();
 }
@@ -0,0 +1,14 @@
+package com.shop.demo.database.repository.projectRepository.shop;
+
+import com.shop.demo.database.entity.project.shop.GarmentSkuEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GarmentSkuRepository extends JpaRepository<GarmentSkuEntity, Long> {
+
+    List<GarmentSkuEntity> findByGarmentIdInOrderByGarmentIdAscIdAsc(Collection<Long> garmentIds);
+}
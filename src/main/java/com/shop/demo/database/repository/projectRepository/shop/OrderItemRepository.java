@@ -4,9 +4,11 @@ import com.shop.demo.database.entity.project.shop.OrderItemEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItemEntity, Long> {
     List<OrderItemEntity> findByOrderId(Long orderId);
+    List<OrderItemEntity> findByOrderIdIn(Collection<Long> orderIds);
 }
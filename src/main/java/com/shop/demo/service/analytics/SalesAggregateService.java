@@ -0,0 +1,236 @@
+package com.shop.demo.service.analytics;
+
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.entity.project.shop.OrderItemEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running sales totals per garment (units, revenue, cost) for the admin
+ * dashboard, so it never scans order_items.
+ *
+ * Order placement calls {@link #record} inside its transaction — the
+ * garment_sales rows move with the order and cannot drift from it — and
+ * {@link #apply} once committed to update the in-memory copy the dashboard
+ * reads. Cost is the garment's cost price at the time of sale. Global totals
+ * are kept alongside, so a summary costs O(garments) at most.
+ *
+ * The in-memory copy is loaded at startup, retried every LOAD_RETRY until it
+ * succeeds, and assumes orders are only placed through this instance. Orders
+ * placed while it loads are neither lost nor counted twice: their deltas are
+ * held until the load finishes, and the load checks — in the same snapshot it
+ * read the totals from — which of them it has already counted.
+ */
+@Service
+public class SalesAggregateService {
+
+    public record GarmentSales(long garmentId, long units, BigDecimal revenue, BigDecimal cost) {
+
+        public BigDecimal profit() { return revenue.subtract(cost); }
+
+        GarmentSales plus(GarmentSales d) {
+            return new GarmentSales(garmentId, units + d.units, revenue.add(d.revenue), cost.add(d.cost));
+        }
+    }
+
+    public record Totals(long orders, long units, BigDecimal revenue, BigDecimal cost) {
+
+        static final Totals ZERO = new Totals(0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public BigDecimal profit() { return revenue.subtract(cost); }
+    }
+
+    /** One order's contribution, from {@link #record}; hand it to {@link #apply} after commit */
+    public record Delta(long orderId, List<GarmentSales> garments) {}
+
+    static final Duration LOAD_RETRY = Duration.ofSeconds(30);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final ApplicationLogger logger;
+
+    private final Map<Long, GarmentSales> byGarment = new ConcurrentHashMap<>();
+    private volatile Totals totals = Totals.ZERO;
+    private volatile boolean loaded;
+
+    // Until loaded: orders recorded so far, and the deltas of those already committed
+    private final Set<Long> recordedBeforeLoad = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Delta> appliedBeforeLoad = new HashMap<>();   // guarded by this
+    // After loading: orders the load counted whose apply has not arrived yet
+    private final Set<Long> countedByLoad = new HashSet<>();              // guarded by this
+
+    private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sales-aggregate-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SalesAggregateService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationLogger logger) {
+        this.jdbcTemplate     = jdbcTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.logger           = logger;
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loader.execute(this::load);
+    }
+
+    @PreDestroy
+    public void stop() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Builds garment_sales from order_items if it is empty (first start), then
+     * loads it. On failure the dashboard keeps showing zeros and the load is
+     * tried again after LOAD_RETRY.
+     */
+    private void load() {
+        try {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM garment_sales", Integer.class);
+            if (rows != null && rows == 0) {
+                int built = jdbcTemplate.update(
+                        "INSERT INTO garment_sales (garment_id, units, revenue, cost) " +
+                        "SELECT oi.garment_id, SUM(oi.quantity), SUM(oi.unit_price * oi.quantity), " +
+                        "SUM(COALESCE(g.cost_price, 0) * oi.quantity) " +
+                        "FROM order_items oi LEFT JOIN garments g ON g.id = oi.garment_id GROUP BY oi.garment_id");
+                if (built > 0) logger.info("Sales aggregates built from order history for {} garments", built);
+            }
+            snapshotTemplate.executeWithoutResult(status -> loadSnapshot());
+        } catch (Exception e) {
+            logger.error("Sales aggregates could not be loaded, retrying in {}s: {}",
+                    LOAD_RETRY.toSeconds(), e.getMessage());
+            if (!loader.isShutdown()) loader.schedule(this::load, LOAD_RETRY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads garment_sales and the order count in one consistent snapshot. An
+     * order visible in it was recorded before the snapshot was taken, so it is
+     * in recordedBeforeLoad — asking the same snapshot which of those exist
+     * tells exactly which deltas the totals already include.
+     */
+    private void loadSnapshot() {
+        Map<Long, GarmentSales> read = new HashMap<>();
+        for (GarmentSales s : jdbcTemplate.query(
+                "SELECT garment_id, units, revenue, cost FROM garment_sales",
+                (rs, i) -> new GarmentSales(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3), rs.getBigDecimal(4)))) {
+            read.put(s.garmentId(), s);
+        }
+        Long orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+
+        synchronized (this) {
+            Set<Long> counted = new HashSet<>();
+            List<Long> recorded = new ArrayList<>(recordedBeforeLoad);
+            for (int from = 0; from < recorded.size(); from += 1000) {
+                List<Long> chunk = recorded.subList(from, Math.min(from + 1000, recorded.size()));
+                counted.addAll(jdbcTemplate.queryForList(
+                        "SELECT id FROM orders WHERE id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                        Long.class, chunk.toArray()));
+            }
+
+            byGarment.clear();
+            byGarment.putAll(read);
+            long units = 0;
+            BigDecimal revenue = BigDecimal.ZERO;
+            BigDecimal cost = BigDecimal.ZERO;
+            for (GarmentSales s : read.values()) {
+                units += s.units();
+                revenue = revenue.add(s.revenue());
+                cost = cost.add(s.cost());
+            }
+            totals = new Totals(orders != null ? orders : 0, units, revenue, cost);
+
+            countedByLoad.clear();
+            countedByLoad.addAll(counted);
+            loaded = true;
+            for (Delta d : appliedBeforeLoad.values()) add(d);
+            appliedBeforeLoad.clear();
+            recordedBeforeLoad.clear();
+        }
+        logger.info("Sales aggregates loaded for {} garments", read.size());
+    }
+
+    /**
+     * Adds one order's lines to garment_sales — must run inside the order's
+     * transaction. One batched upsert, in garment id order so concurrent
+     * orders lock the rows in the same order.
+     */
+    public Delta record(long orderId, List<OrderItemEntity> items, Map<Long, GarmentEntity> garments) {
+        if (!loaded) recordedBeforeLoad.add(orderId);
+        Map<Long, GarmentSales> lines = new TreeMap<>();
+        for (OrderItemEntity oi : items) {
+            GarmentEntity g = garments.get(oi.getGarmentId());
+            int costPrice = g != null && g.getCostPrice() != null ? g.getCostPrice() : 0;
+            BigDecimal quantity = BigDecimal.valueOf(oi.getQuantity());
+            lines.merge(oi.getGarmentId(),
+                    new GarmentSales(oi.getGarmentId(), oi.getQuantity(),
+                            oi.getUnitPrice().multiply(quantity), BigDecimal.valueOf(costPrice).multiply(quantity)),
+                    GarmentSales::plus);
+        }
+
+        List<Object[]> args = new ArrayList<>(lines.size());
+        for (GarmentSales s : lines.values()) args.add(new Object[]{ s.garmentId(), s.units(), s.revenue(), s.cost() });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO garment_sales (garment_id, units, revenue, cost) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE units = units + VALUES(units), " +
+                "revenue = revenue + VALUES(revenue), cost = cost + VALUES(cost)",
+                args);
+        return new Delta(orderId, List.copyOf(lines.values()));
+    }
+
+    /**
+     * Applies a committed order's delta to the in-memory copy — held until the
+     * load finishes if it is still running, skipped if the load counted it.
+     */
+    public synchronized void apply(Delta delta) {
+        if (!loaded) {
+            appliedBeforeLoad.put(delta.orderId(), delta);
+            return;
+        }
+        add(delta);
+    }
+
+    private void add(Delta delta) {   // caller holds this
+        if (countedByLoad.remove(delta.orderId())) return;
+        long units = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal cost = BigDecimal.ZERO;
+        for (GarmentSales d : delta.garments()) {
+            byGarment.merge(d.garmentId(), d, GarmentSales::plus);
+            units += d.units();
+            revenue = revenue.add(d.revenue());
+            cost = cost.add(d.cost());
+        }
+        Totals t = totals;
+        totals = new Totals(t.orders() + 1, t.units() + units, t.revenue().add(revenue), t.cost().add(cost));
+    }
+
+    public Totals totals() {
+        return totals;
+    }
+
+    /** The n garments ranked highest by the comparator */
+    public List<GarmentSales> top(Comparator<GarmentSales> order, int n) {
+        return byGarment.values().stream().sorted(order.reversed()).limit(n).toList();
+    }
+}
@@ -0,0 +1,192 @@
+package com.shop.demo.service.cart;
+
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires cart lines nobody has touched for cart.abandon.after-days
+ * (updated_at bumps on every add and quantity change), nightly at
+ * cart.abandon.sweep-cron, on its own daemon thread (the application does
+ * not enable Spring scheduling).
+ *
+ * Lines are removed oldest first in chunks of cart.abandon.chunk-size, each
+ * chunk its own short transaction walking idx_cart_updated — row locks are
+ * held for one chunk, never for the whole sweep, and SKIP LOCKED steps
+ * around lines a shopper is writing right now.
+ *
+ * What each chunk removes is added to abandoned_cart_stats (lines, units and
+ * value per garment) in the same transaction, so the admin dashboard reads a
+ * table of at most one row per garment instead of scanning history.
+ */
+@Service
+public class AbandonedCartSweeper {
+
+    static final Duration CHUNK_PAUSE = Duration.ofMillis(50);
+    static final int DASHBOARD_GARMENTS = 20;
+
+    private record Expired(long id, long userId, long garmentId, int quantity, Integer priceAtAdd) {}
+
+    public record AbandonedGarment(long garmentId, String name, long lines, long units, long value,
+                                   LocalDateTime lastSweptAt) {}
+
+    public record AbandonedSummary(long lines, long units, long value, List<AbandonedGarment> topGarments) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CartService cartService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ApplicationLogger logger;
+    private final Duration maxAge;
+    private final int chunkSize;
+    private final CronExpression schedule;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AbandonedCartSweeper(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                CartService cartService,
+                                CatalogSnapshotService catalogSnapshotService,
+                                ApplicationLogger logger,
+                                @Value("${cart.abandon.after-days:30}") int afterDays,
+                                @Value("${cart.abandon.chunk-size:500}") int chunkSize,
+                                @Value("${cart.abandon.sweep-cron:0 30 3 * * ?}") String sweepCron) {
+        this.jdbcTemplate           = jdbcTemplate;
+        this.transactionTemplate    = transactionTemplate;
+        this.cartService            = cartService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.logger                 = logger;
+        this.maxAge                 = Duration.ofDays(afterDays);
+        this.chunkSize              = Math.max(1, chunkSize);
+        this.schedule               = CronExpression.parse(sweepCron);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduleNext();
+    }
+
+    @PreDestroy
+    public void stop() {
+        sweeper.shutdownNow();
+    }
+
+    private void scheduleNext() {
+        LocalDateTime next = schedule.next(LocalDateTime.now());
+        if (next == null || sweeper.isShutdown()) return;
+        long delay = Duration.between(LocalDateTime.now(), next).toMillis();
+        sweeper.schedule(() -> {
+            try {
+                sweep();
+            } finally {
+                scheduleNext();
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    public void sweep() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(maxAge));
+        int lines = 0;
+        int chunk;
+        try {
+            do {
+                chunk = sweepChunk(cutoff);
+                lines += chunk;
+                if (chunk == chunkSize) Thread.sleep(CHUNK_PAUSE.toMillis());   // let shoppers' writes in between chunks
+            } while (chunk == chunkSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Abandoned-cart sweep failed after {} lines: {}", lines, e.getMessage());
+            return;
+        }
+        if (lines > 0) logger.info("Abandoned-cart sweep: {} lines older than {} removed", lines, cutoff);
+    }
+
+    /** Removes up to chunkSize expired lines and records them; returns how many */
+    private int sweepChunk(Timestamp cutoff) {
+        CatalogSnapshot catalog = catalogSnapshotService.get();
+        Set<Long> users = new HashSet<>();
+        Integer removed = transactionTemplate.execute(status -> {
+            List<Expired> rows = jdbcTemplate.query(
+                    "SELECT id, user_id, garment_id, quantity, price_at_add FROM cart_items " +
+                    "WHERE updated_at < ? ORDER BY updated_at, id LIMIT " + chunkSize + " FOR UPDATE SKIP LOCKED",
+                    (rs, i) -> new Expired(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4),
+                            rs.getObject(5, Integer.class)),
+                    cutoff);
+            if (rows.isEmpty()) return 0;
+
+            StringJoiner ids = new StringJoiner(",", "(", ")");
+            Map<Long, long[]> byGarment = new HashMap<>();   // garment id → { lines, units, value }
+            for (Expired r : rows) {
+                ids.add(Long.toString(r.id()));
+                users.add(r.userId());
+                long[] agg = byGarment.computeIfAbsent(r.garmentId(), k -> new long[3]);
+                agg[0]++;
+                agg[1] += r.quantity();
+                agg[2] += (long) r.quantity() * unitPrice(r, catalog);
+            }
+            jdbcTemplate.update("DELETE FROM cart_items WHERE id IN " + ids);
+
+            Timestamp now = Timestamp.from(Instant.now());
+            List<Object[]> args = new ArrayList<>(byGarment.size());
+            byGarment.forEach((garmentId, agg) -> args.add(new Object[]{ garmentId, agg[0], agg[1], agg[2], now }));
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO abandoned_cart_stats (garment_id, line_count, units, value, last_swept_at) " +
+                    "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE line_count = line_count + VALUES(line_count), " +
+                    "units = units + VALUES(units), value = value + VALUES(value), last_swept_at = VALUES(last_swept_at)",
+                    args);
+            return rows.size();
+        });
+        for (Long userId : users) cartService.invalidate(userId);
+        return removed != null ? removed : 0;
+    }
+
+    /** Price when added; lines from before price_at_add existed fall back to the current price */
+    private static int unitPrice(Expired r, CatalogSnapshot catalog) {
+        if (r.priceAtAdd() != null) return r.priceAtAdd();
+        GarmentEntity g = catalog.getGarment(r.garmentId());
+        return g != null && g.getBasePrice() != null ? g.getBasePrice() : 0;
+    }
+
+    // ── Dashboard ─────────────────────────────────────────────
+
+    /** Totals over every sweep so far, plus the garments with the most abandoned value */
+    public AbandonedSummary summary() {
+        CatalogSnapshot catalog = catalogSnapshotService.get();
+        List<AbandonedGarment> top = jdbcTemplate.query(
+                "SELECT garment_id, line_count, units, value, last_swept_at FROM abandoned_cart_stats " +
+                "ORDER BY value DESC LIMIT " + DASHBOARD_GARMENTS,
+                (rs, i) -> {
+                    GarmentEntity g = catalog.getGarment(rs.getLong(1));
+                    return new AbandonedGarment(rs.getLong(1), g != null ? g.getName() : "Unknown",
+                            rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getTimestamp(5).toLocalDateTime());
+                });
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(line_count), 0), COALESCE(SUM(units), 0), COALESCE(SUM(value), 0) " +
+                "FROM abandoned_cart_stats",
+                (rs, i) -> new AbandonedSummary(rs.getLong(1), rs.getLong(2), rs.getLong(3), top));
+    }
+}
@@ -0,0 +1,486 @@
+package com.shop.demo.service.cart;
+
+import com.shop.demo.database.entity.project.shop.CartItemEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shopping cart store. All cart reads and writes go through here.
+ *
+ * Writes are single statements keyed by uq_cart_user_garment_size — an add is
+ * one INSERT ... ON DUPLICATE KEY UPDATE, so two concurrent clicks can no
+ * longer both miss the lookup and race to insert.
+ *
+ * Each user's cart is cached (LRU, at most cart.cache.max-users carts) and
+ * kept current by the writes, so page views do not query MySQL. Per-user work
+ * is serialised on a lock stripe: a load can never cache rows that a
+ * concurrent write has already replaced. The cache assumes carts are only
+ * written through this instance.
+ *
+ * With cart.write-behind.enabled, quantity changes to lines already in a
+ * cached cart are applied in memory and flushed every
+ * cart.write-behind.flush-ms as one batched UPDATE, so rapid +/- clicks cost a
+ * single write. New lines and removals are always written through. A crash
+ * loses at most one flush interval of quantity changes.
+ */
+@Service
+public class CartService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    /** A cart line as cached — immutable, handed out as fresh entities */
+    private record Line(long id, long garmentId, String size, int quantity, Integer priceAtAdd, LocalDateTime addedAt) {
+
+        Line withQuantity(int q) {
+            return new Line(id, garmentId, size, q, priceAtAdd, addedAt);
+        }
+
+        CartItemEntity toEntity(long userId) {
+            CartItemEntity e = new CartItemEntity();
+            e.setId(id);
+            e.setUserId(userId);
+            e.setGarmentId(garmentId);
+            e.setSize(size);
+            e.setQuantity(quantity);
+            e.setPriceAtAdd(priceAtAdd);
+            e.setAddedAt(addedAt);
+            return e;
+        }
+    }
+
+    /** Outcome of a change addressed to one cart line by id */
+    public enum LineResult { UPDATED, NOT_FOUND, FORBIDDEN }
+
+    /**
+     * One step of {@link #apply}: ADD (garmentId, size, quantity, unitPrice),
+     * SET (lineId, quantity) or REMOVE (lineId).
+     */
+    public record Operation(Kind kind, Long lineId, Long garmentId, String size, int quantity, Integer unitPrice) {
+        public enum Kind { ADD, SET, REMOVE }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationLogger logger;
+    private final boolean writeBehind;
+    private final long flushMillis;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Map<Long, List<Line>> carts;
+    /** userId → (line id → quantity) not yet written; only used in write-behind mode */
+    private final Map<Long, Map<Long, Integer>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public CartService(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       ApplicationLogger logger,
+                       @Value("${cart.cache.max-users:50000}") int maxCachedCarts,
+                       @Value("${cart.write-behind.enabled:false}") boolean writeBehind,
+                       @Value("${cart.write-behind.flush-ms:2000}") long flushMillis) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.logger              = logger;
+        this.writeBehind         = writeBehind;
+        this.flushMillis         = flushMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+        this.carts = new LinkedHashMap<>(1_024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<Line>> eldest) {
+                return size() > maxCachedCarts;
+            }
+        };
+        this.flusher = writeBehind
+                ? Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "cart-flusher");
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (flusher == null) return;
+        flusher.scheduleWithFixedDelay(this::flushAll, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        logger.info("Cart write-behind on: quantity changes flushed every {} ms", flushMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) return;
+        flusher.shutdownNow();
+        flushAll();
+    }
+
+    // ── Reads ─────────────────────────────────────────────────
+
+    /** The user's cart lines in the order they were added */
+    public List<CartItemEntity> items(Long userId) {
+        List<Line> lines;
+        synchronized (lock(userId)) {
+            lines = cart(userId);
+        }
+        List<CartItemEntity> out = new ArrayList<>(lines.size());
+        for (Line l : lines) out.add(l.toEntity(userId));
+        return out;
+    }
+
+    // ── Writes ────────────────────────────────────────────────
+
+    /**
+     * Adds quantity units of garmentId in size, creating the line or adding
+     * to it. unitPrice is recorded only when the line is created.
+     */
+    public void add(Long userId, Long garmentId, String size, int quantity, Integer unitPrice) {
+        synchronized (lock(userId)) {
+            List<Line> cached = cached(userId);
+            int index = cached != null ? indexOf(cached, garmentId, size) : -1;
+            if (writeBehind && index >= 0) {
+                Line line = cached.get(index);
+                setCachedQuantity(userId, cached, index, line.quantity() + quantity);
+                return;
+            }
+
+            // an evicted cart can still have unflushed quantities — write them first, or the next
+            // flush would put an older absolute quantity over this upsert's increment
+            if (cached == null) flushUser(userId);
+            LocalDateTime now = LocalDateTime.now();
+            long id = upsert(userId, garmentId, size, quantity, unitPrice, now);
+            if (cached == null) return;
+            List<Line> next = new ArrayList<>(cached);
+            if (index >= 0) {
+                next.set(index, cached.get(index).withQuantity(cached.get(index).quantity() + quantity));
+            } else {
+                next.add(new Line(id, garmentId, size, quantity, unitPrice, now));
+            }
+            put(userId, next);
+        }
+    }
+
+    /** Sets the quantity of one of the user's lines */
+    public LineResult setQuantity(Long userId, Long lineId, int quantity) {
+        synchronized (lock(userId)) {
+            List<Line> lines = cart(userId);
+            int index = indexOf(lines, lineId);
+            if (index < 0) return notInCart(lineId);
+            if (writeBehind) {
+                setCachedQuantity(userId, lines, index, quantity);
+                return LineResult.UPDATED;
+            }
+            int rows = jdbcTemplate.update("UPDATE cart_items SET quantity = ? WHERE id = ? AND user_id = ?",
+                    quantity, lineId, userId);
+            if (rows == 0) {
+                evict(userId);   // removed behind our back — reload on next read
+                return LineResult.NOT_FOUND;
+            }
+            List<Line> next = new ArrayList<>(lines);
+            next.set(index, lines.get(index).withQuantity(quantity));
+            put(userId, next);
+            return LineResult.UPDATED;
+        }
+    }
+
+    /** Removes one of the user's lines */
+    public LineResult remove(Long userId, Long lineId) {
+        synchronized (lock(userId)) {
+            List<Line> lines = cart(userId);
+            int index = indexOf(lines, lineId);
+            if (index < 0) return notInCart(lineId);
+            jdbcTemplate.update("DELETE FROM cart_items WHERE id = ? AND user_id = ?", lineId, userId);
+            Map<Long, Integer> userPending = pending.get(userId);
+            if (userPending != null) userPending.remove(lineId);
+            List<Line> next = new ArrayList<>(lines);
+            next.remove(index);
+            put(userId, next);
+            return LineResult.UPDATED;
+        }
+    }
+
+    /**
+     * Forgets the cached cart and any unflushed changes. Call after a
+     * transaction that rewrote cart_items directly (checkout clearing the
+     * cart) has committed.
+     */
+    public void evict(Long userId) {
+        synchronized (lock(userId)) {
+            pending.remove(userId);
+            synchronized (carts) {
+                carts.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached cart so the next read reloads it, first writing any
+     * unflushed quantities. For rows removed by someone else (the
+     * abandoned-cart sweep) while the user may still be editing other lines.
+     */
+    public void invalidate(Long userId) {
+        synchronized (lock(userId)) {
+            flushUser(userId);
+            synchronized (carts) {
+                carts.remove(userId);
+            }
+        }
+    }
+
+    // ── Batch ─────────────────────────────────────────────────
+
+    /**
+     * Applies operations in order as one change to the user's cart. They are
+     * first folded into the cart's final state — several steps on one line
+     * become one write — and then written in one transaction as at most three
+     * batched statements (deletes, quantity updates, new lines). All or
+     * nothing: a SET or REMOVE naming a line that is not in this cart rejects
+     * the whole batch before anything is written.
+     *
+     * @return the resulting cart
+     * @throws IllegalArgumentException if an operation names a line that is not in the user's cart
+     */
+    public List<CartItemEntity> apply(Long userId, List<Operation> operations) {
+        synchronized (lock(userId)) {
+            List<Line> current = cart(userId);
+            flushUser(userId);   // write-behind quantities are already in current; write them before the batch
+
+            Map<Long, Integer> quantities = new LinkedHashMap<>();       // existing line id → final quantity
+            Map<String, Long> idByKey = new HashMap<>();
+            for (Line l : current) {
+                quantities.put(l.id(), l.quantity());
+                idByKey.put(key(l.garmentId(), l.size()), l.id());
+            }
+            Set<Long> removed = new HashSet<>();
+            Map<String, Operation> added = new LinkedHashMap<>();       // garment|size → new line (quantity summed)
+
+            for (Operation op : operations) {
+                switch (op.kind()) {
+                    case ADD -> {
+                        String key = key(op.garmentId(), op.size());
+                        Long id = idByKey.get(key);
+                        if (id != null) {
+                            quantities.merge(id, op.quantity(), Integer::sum);
+                        } else {
+                            added.merge(key, op, (a, b) -> new Operation(Operation.Kind.ADD, null,
+                                    a.garmentId(), a.size(), a.quantity() + b.quantity(), a.unitPrice()));
+                        }
+                    }
+                    case SET, REMOVE -> {
+                        if (!quantities.containsKey(op.lineId())) {
+                            throw new IllegalArgumentException("Cart line " + op.lineId() + " is not in your cart");
+                        }
+                        if (op.kind() == Operation.Kind.SET) {
+                            quantities.put(op.lineId(), op.quantity());
+                        } else {
+                            quantities.remove(op.lineId());
+                            removed.add(op.lineId());
+                            idByKey.values().remove(op.lineId());   // a later ADD of the same size starts a new line
+                        }
+                    }
+                }
+            }
+
+            Map<Long, Integer> before = new HashMap<>();
+            for (Line l : current) before.put(l.id(), l.quantity());
+            List<Object[]> deletes = new ArrayList<>();
+            for (Long id : removed) deletes.add(new Object[] { id, userId });
+            List<Object[]> updates = new ArrayList<>();
+            quantities.forEach((id, qty) -> {
+                if (!qty.equals(before.get(id))) updates.add(new Object[] { qty, id, userId });
+            });
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> inserts = new ArrayList<>();
+            for (Operation op : added.values()) {
+                inserts.add(new Object[] { userId, op.garmentId(), op.size(), op.quantity(), op.unitPrice(), now });
+            }
+
+            List<Line> result = transactionTemplate.execute(status -> {
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ? AND user_id = ?", deletes);
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ? WHERE id = ? AND user_id = ?", updates);
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(
+                            "INSERT INTO cart_items (user_id, garment_id, size, quantity, price_at_add, added_at) " +
+                            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)",
+                            inserts);
+                }
+                return load(userId);   // new lines need their ids
+            });
+            put(userId, result);
+
+            List<CartItemEntity> out = new ArrayList<>(result.size());
+            for (Line l : result) out.add(l.toEntity(userId));
+            return out;
+        }
+    }
+
+    private static String key(Long garmentId, String size) {
+        return garmentId + "|" + size;
+    }
+
+    // ── Internals ─────────────────────────────────────────────
+
+    /**
+     * INSERT ... ON DUPLICATE KEY UPDATE on uq_cart_user_garment_size.
+     * LAST_INSERT_ID(id) makes the existing row's id come back as the
+     * generated key when the line was already there.
+     */
+    private long upsert(Long userId, Long garmentId, String size, int quantity, Integer unitPrice, LocalDateTime addedAt) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO cart_items (user_id, garment_id, size, quantity, price_at_add, added_at) VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), quantity = quantity + VALUES(quantity)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, userId);
+            ps.setLong(2, garmentId);
+            ps.setString(3, size);
+            ps.setInt(4, quantity);
+            ps.setObject(5, unitPrice, Types.INTEGER);
+            ps.setTimestamp(6, Timestamp.valueOf(addedAt));
+            return ps;
+        }, keys);
+        // an update reports 2 affected rows, so the driver may list a second (meaningless) key
+        return ((Number) keys.getKeyList().get(0).values().iterator().next()).longValue();
+    }
+
+    /** Cached cart, loading it (after writing any unflushed changes) on a miss. Caller holds the user's lock. */
+    private List<Line> cart(Long userId) {
+        List<Line> lines = cached(userId);
+        if (lines != null) return lines;
+        flushUser(userId);
+        lines = load(userId);
+        put(userId, lines);
+        return lines;
+    }
+
+    private List<Line> load(Long userId) {
+        return List.copyOf(jdbcTemplate.query(
+                "SELECT id, garment_id, size, quantity, price_at_add, added_at FROM cart_items WHERE user_id = ? ORDER BY id",
+                (rs, i) -> new Line(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4),
+                        rs.getObject(5, Integer.class),
+                        rs.getTimestamp(6) != null ? rs.getTimestamp(6).toLocalDateTime() : null),
+                userId));
+    }
+
+    private List<Line> cached(Long userId) {
+        synchronized (carts) {
+            return carts.get(userId);
+        }
+    }
+
+    private void put(Long userId, List<Line> lines) {
+        List<Line> copy = List.copyOf(lines);
+        synchronized (carts) {
+            carts.put(userId, copy);
+        }
+    }
+
+    private void setCachedQuantity(Long userId, List<Line> lines, int index, int quantity) {
+        Line line = lines.get(index);
+        List<Line> next = new ArrayList<>(lines);
+        next.set(index, line.withQuantity(quantity));
+        put(userId, next);
+        pending.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(line.id(), quantity);
+    }
+
+    private LineResult notInCart(Long lineId) {
+        Integer exists = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cart_items WHERE id = ?", Integer.class, lineId);
+        return exists != null && exists > 0 ? LineResult.FORBIDDEN : LineResult.NOT_FOUND;
+    }
+
+    private static int indexOf(List<Line> lines, Long garmentId, String size) {
+        for (int i = 0; i < lines.size(); i++) {
+            Line l = lines.get(i);
+            if (l.garmentId() == garmentId && l.size().equals(size)) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(List<Line> lines, Long lineId) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).id() == lineId) return i;
+        }
+        return -1;
+    }
+
+    private Object lock(Long userId) {
+        return locks[Math.floorMod(Long.hashCode(userId), LOCK_STRIPES)];
+    }
+
+    // ── Write-behind flush ────────────────────────────────────
+
+    /** Writes one user's unflushed quantities. Caller holds the user's lock. */
+    private void flushUser(Long userId) {
+        Map<Long, Integer> userPending = pending.remove(userId);
+        if (userPending != null && !userPending.isEmpty()) write(Map.of(userId, userPending));
+    }
+
+    /**
+     * Writes every unflushed quantity, one batch per lock stripe. The stripe
+     * lock is held until its batch is written, so no load can read a row
+     * whose newer quantity is still in flight.
+     */
+    private void flushAll() {
+        Map<Integer, List<Long>> usersByStripe = new HashMap<>();
+        for (Long userId : pending.keySet()) {
+            usersByStripe.computeIfAbsent(Math.floorMod(Long.hashCode(userId), LOCK_STRIPES),
+                    k -> new ArrayList<>()).add(userId);
+        }
+        for (Map.Entry<Integer, List<Long>> stripe : usersByStripe.entrySet()) {
+            synchronized (locks[stripe.getKey()]) {
+                Map<Long, Map<Long, Integer>> drained = new HashMap<>();
+                for (Long userId : stripe.getValue()) {
+                    Map<Long, Integer> userPending = pending.remove(userId);
+                    if (userPending != null && !userPending.isEmpty()) drained.put(userId, userPending);
+                }
+                try {
+                    write(drained);
+                } catch (Exception e) {
+                    logger.error("Cart write-behind flush failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** One batched UPDATE for the drained quantities; on failure they are queued again. Caller holds their locks. */
+    private void write(Map<Long, Map<Long, Integer>> drained) {
+        if (drained.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>();
+        drained.forEach((userId, lines) ->
+                lines.forEach((lineId, qty) -> args.add(new Object[] { qty, lineId, userId })));
+        try {
+            jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ? WHERE id = ? AND user_id = ?", args);
+        } catch (RuntimeException e) {
+            drained.forEach(pending::put);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.shop.demo.service.cart;
+
+import com.shop.demo.database.entity.project.shop.CartItemEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import com.shop.demo.service.inventory.InventoryReservationService;
+import com.shop.demo.service.inventory.SkuInventoryService;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The cart as the cart and checkout pages show it: each line joined with its
+ * garment (name, image, current price) from the catalog snapshot and with its
+ * size's stock from one garment_skus query, plus server-side totals. Units
+ * the user holds since create-order were taken out of garment_skus, so they
+ * are added back to what this user sees as available.
+ *
+ * A line is flagged
+ *   unavailable   — the garment was removed or deactivated (left out of the total),
+ *   outOfStock    — fewer units in stock than the line's quantity,
+ *   priceChanged  — the base price differs from when the line was added.
+ * checkoutReady is false while any line is unavailable or out of stock.
+ */
+@Service
+public class CartViewService {
+
+    public record CartLine(long id,
+                           long garmentId,
+                           String name,
+                           String imageUrl,
+                           String size,
+                           int quantity,
+                           int unitPrice,
+                           Integer priceAtAdd,
+                           long lineTotal,
+                           int available,
+                           boolean unavailable,
+                           boolean outOfStock,
+                           boolean priceChanged) {}
+
+    public record CartView(List<CartLine> items, int itemCount, long total, boolean checkoutReady) {}
+
+    private final CartService cartService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final SkuInventoryService skuInventoryService;
+    private final InventoryReservationService inventoryReservationService;
+
+    public CartViewService(CartService cartService,
+                           CatalogSnapshotService catalogSnapshotService,
+                           SkuInventoryService skuInventoryService,
+                           InventoryReservationService inventoryReservationService) {
+        this.cartService                 = cartService;
+        this.catalogSnapshotService      = catalogSnapshotService;
+        this.skuInventoryService         = skuInventoryService;
+        this.inventoryReservationService = inventoryReservationService;
+    }
+
+    public CartView view(Long userId) {
+        List<CartItemEntity> items = cartService.items(userId);
+        if (items.isEmpty()) return new CartView(List.of(), 0, 0, false);
+
+        CatalogSnapshot catalog = catalogSnapshotService.get();
+        Set<Long> garmentIds = new LinkedHashSet<>();
+        for (CartItemEntity ci : items) garmentIds.add(ci.getGarmentId());
+        Map<Long, Map<String, Integer>> stock = skuInventoryService.availability(garmentIds);
+        Map<Long, Map<String, Integer>> held = inventoryReservationService.held(userId);
+
+        List<CartLine> lines = new ArrayList<>(items.size());
+        int itemCount = 0;
+        long total = 0;
+        boolean ready = true;
+        for (CartItemEntity ci : items) {
+            GarmentEntity g = catalog.getGarment(ci.getGarmentId());
+            int quantity = ci.getQuantity() != null ? ci.getQuantity() : 0;
+            int available = stock.getOrDefault(ci.getGarmentId(), Map.of()).getOrDefault(ci.getSize(), 0)
+                    + held.getOrDefault(ci.getGarmentId(), Map.of()).getOrDefault(ci.getSize(), 0);
+            boolean unavailable = g == null;
+            int unitPrice = g != null && g.getBasePrice() != null ? g.getBasePrice()
+                    : ci.getPriceAtAdd() != null ? ci.getPriceAtAdd() : 0;
+            long lineTotal = unavailable ? 0 : (long) unitPrice * quantity;
+            boolean outOfStock = unavailable || available < quantity;
+            boolean priceChanged = !unavailable && ci.getPriceAtAdd() != null && ci.getPriceAtAdd() != unitPrice;
+
+            lines.add(new CartLine(ci.getId(), ci.getGarmentId(),
+                    g != null ? g.getName() : null,
+                    g != null ? g.getImageUrl() : null,
+                    ci.getSize(), quantity, unitPrice, ci.getPriceAtAdd(), lineTotal,
+                    available, unavailable, outOfStock, priceChanged));
+            if (!unavailable) {
+                itemCount += quantity;
+                total += lineTotal;
+            }
+            if (outOfStock) ready = false;
+        }
+        return new CartView(lines, itemCount, total, ready);
+    }
+}
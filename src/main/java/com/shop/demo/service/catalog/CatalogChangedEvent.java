@@ -0,0 +1,12 @@
+package com.shop.demo.service.catalog;
+
+/**
+ * Published by admin endpoints after a garment or category mutation.
+ * CatalogSnapshotService rebuilds the public catalog once the surrounding
+ * transaction (if any) has committed.
+ *
+ * @param source   "garment" or "category"
+ * @param entityId id of the changed row, or null for bulk changes
+ */
+public record CatalogChangedEvent(String source, Long entityId) {
+}
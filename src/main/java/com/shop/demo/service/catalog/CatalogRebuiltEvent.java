@@ -0,0 +1,13 @@
+package com.shop.demo.service.catalog;
+
+/**
+ * Published synchronously right after a new {@link CatalogSnapshot} is
+ * swapped in. Derived in-memory structures (search index, facet bitmaps, …)
+ * listen for this instead of {@link CatalogChangedEvent} so they always see
+ * the snapshot that reflects the change.
+ *
+ * @param snapshot the snapshot now being served
+ * @param cause    the change that triggered the rebuild, or null for the initial load
+ */
+public record CatalogRebuiltEvent(CatalogSnapshot snapshot, CatalogChangedEvent cause) {
+}
@@ -0,0 +1,84 @@
+package com.shop.demo.service.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Pre-serialized JSON for the public catalog endpoints. Each view is rendered
+ * at most once per catalog snapshot version and then served as raw bytes,
+ * so repeat requests skip Jackson entirely.
+ */
+@Service
+public class CatalogResponseCache {
+
+    public static final String GARMENTS   = "garments";
+    public static final String FEATURED   = "featured";
+    public static final String CATEGORIES = "categories";
+    public static final String HOME       = "home";
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<Rendered> rendered = new AtomicReference<>();
+
+    public CatalogResponseCache(CatalogSnapshotService catalogSnapshotService,
+                                ObjectMapper objectMapper) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.objectMapper           = objectMapper;
+    }
+
+    public SerializedResponse garments() {
+        return get(GARMENTS, CatalogSnapshot::getActiveGarments);
+    }
+
+    public SerializedResponse featured() {
+        return get(FEATURED, CatalogSnapshot::getFeatured);
+    }
+
+    public SerializedResponse home() {
+        return get(HOME, CatalogSnapshot::getHomePage);
+    }
+
+    public SerializedResponse categories() {
+        return get(CATEGORIES, CatalogSnapshot::getActiveCategories);
+    }
+
+    /**
+     * Returns the rendered view for the current snapshot, rendering it if this
+     * is the first request since the catalog changed.
+     */
+    public SerializedResponse get(String key, Function<CatalogSnapshot, Object> view) {
+        CatalogSnapshot snapshot = catalogSnapshotService.get();
+        Rendered r = rendered.get();
+        if (r == null || r.version != snapshot.getVersion()) {
+            Rendered fresh = new Rendered(snapshot.getVersion());
+            r = rendered.compareAndSet(r, fresh) ? fresh : rendered.get();
+            if (r.version != snapshot.getVersion()) {
+                // lost a race with a newer snapshot — render without caching
+                return render(snapshot, view);
+            }
+        }
+        return r.bodies.computeIfAbsent(key, k -> render(snapshot, view));
+    }
+
+    private SerializedResponse render(CatalogSnapshot snapshot, Function<CatalogSnapshot, Object> view) {
+        try {
+            return new SerializedResponse(snapshot.getVersion(), objectMapper.writeValueAsBytes(view.apply(snapshot)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize catalog view", e);
+        }
+    }
+
+    private static final class Rendered {
+        final long version;
+        final Map<String, SerializedResponse> bodies = new ConcurrentHashMap<>();
+
+        Rendered(long version) { this.version = version; }
+    }
+}
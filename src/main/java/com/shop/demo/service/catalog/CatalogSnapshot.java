@@ -0,0 +1,90 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+
+import java.util.*;
+
+/**
+ * Immutable view of the active catalog. A new instance is built on every
+ * catalog change and swapped in atomically — readers never see a partially
+ * rebuilt catalog and never touch the database or a Hibernate session.
+ *
+ * The contained entities are detached copies loaded for this snapshot only
+ * and must be treated as read-only.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final List<GarmentEntity> activeGarments;
+    private final List<CategoryEntity> activeCategories;
+    private final Map<Long, GarmentEntity> garmentsById;
+    private final HomePageBundle homePage;
+    private final Map<Long, Set<Long>> categorySubtrees;
+    private final Map<Long, List<CategoryEntity>> categoryPaths;
+
+    CatalogSnapshot(long version,
+                    List<GarmentEntity> activeGarments,
+                    List<CategoryEntity> activeCategories) {
+        this.version          = version;
+        this.activeGarments   = List.copyOf(activeGarments);
+        this.activeCategories = List.copyOf(activeCategories);
+
+        Map<Long, GarmentEntity> byId = new HashMap<>(activeGarments.size() * 2);
+        for (GarmentEntity g : activeGarments) byId.put(g.getId(), g);
+        this.garmentsById = Collections.unmodifiableMap(byId);
+
+        this.homePage = HomePageBundle.build(activeGarments, activeCategories);
+
+        // Materialise the category tree once per snapshot: every active category's
+        // root-to-leaf path, and from those paths the full descendant set of each node.
+        Map<Long, CategoryEntity> catById = new HashMap<>();
+        for (CategoryEntity c : activeCategories) catById.put(c.getId(), c);
+
+        Map<Long, List<CategoryEntity>> paths = new HashMap<>(catById.size() * 2);
+        Map<Long, Set<Long>> subtrees = new HashMap<>(catById.size() * 2);
+        for (CategoryEntity c : activeCategories) {
+            LinkedList<CategoryEntity> path = new LinkedList<>();
+            CategoryEntity node = c;
+            while (node != null && path.size() <= catById.size()) {   // size guard against cycles
+                path.addFirst(node);
+                node = node.getParentId() != null ? catById.get(node.getParentId()) : null;
+            }
+            paths.put(c.getId(), List.copyOf(path));
+            for (CategoryEntity ancestor : path) {
+                subtrees.computeIfAbsent(ancestor.getId(), k -> new LinkedHashSet<>()).add(c.getId());
+            }
+        }
+        subtrees.replaceAll((id, ids) -> Collections.unmodifiableSet(ids));
+        this.categoryPaths    = Collections.unmodifiableMap(paths);
+        this.categorySubtrees = Collections.unmodifiableMap(subtrees);
+    }
+
+    /** Monotonically increasing — bumps on every rebuild */
+    public long getVersion() { return version; }
+
+    /** Active garments ordered by garmentType, then id */
+    public List<GarmentEntity> getActiveGarments() { return activeGarments; }
+
+    /** Active categories ordered by depth, then displayOrder */
+    public List<CategoryEntity> getActiveCategories() { return activeCategories; }
+
+    /** Active garment by id, or null */
+    public GarmentEntity getGarment(Long id) { return garmentsById.get(id); }
+
+    /** { mens: [max 4], womens: [max 4], kids: [max 4] } */
+    public Map<String, List<GarmentEntity>> getFeatured() { return homePage.featuredByType(); }
+
+    /** Precomputed home page sections */
+    public HomePageBundle getHomePage() { return homePage; }
+
+    /** The category itself plus all active descendants (empty if unknown) */
+    public Set<Long> getCategorySubtree(Long rootId) {
+        return rootId != null ? categorySubtrees.getOrDefault(rootId, Set.of()) : Set.of();
+    }
+
+    /** Root-to-leaf chain of active categories ending at categoryId (empty if unknown) */
+    public List<CategoryEntity> getCategoryPath(Long categoryId) {
+        return categoryId != null ? categoryPaths.getOrDefault(categoryId, List.of()) : List.of();
+    }
+}
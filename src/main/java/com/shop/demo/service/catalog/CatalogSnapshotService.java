@@ -0,0 +1,92 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.repository.projectRepository.shop.CategoryRepository;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-through holder for the public catalog (active garments, featured
+ * buckets, active categories).
+ *
+ * The first read loads the snapshot; after that public endpoints are served
+ * purely from memory. Admin mutations publish a {@link CatalogChangedEvent}
+ * and the snapshot is rebuilt once that change has committed; each rebuild is
+ * announced with a {@link CatalogRebuiltEvent} for derived indexes.
+ *
+ * Note: stock figures inside the snapshot are refreshed on catalog changes
+ * only — checkout does not trigger a rebuild.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private final GarmentRepository garmentRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApplicationLogger logger;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final Object rebuildLock = new Object();
+
+    public CatalogSnapshotService(GarmentRepository garmentRepository,
+                                  CategoryRepository categoryRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  ApplicationLogger logger) {
+        this.garmentRepository  = garmentRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher     = eventPublisher;
+        this.logger             = logger;
+    }
+
+    /** Current snapshot — loads it on first access */
+    public CatalogSnapshot get() {
+        CatalogSnapshot snapshot = current.get();
+        if (snapshot != null) return snapshot;
+        synchronized (rebuildLock) {
+            snapshot = current.get();
+            return snapshot != null ? snapshot : rebuildLocked(null);
+        }
+    }
+
+    /** Rebuilds and atomically publishes a fresh snapshot */
+    public CatalogSnapshot rebuild(CatalogChangedEvent cause) {
+        synchronized (rebuildLock) {
+            return rebuildLocked(cause);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        logger.debug("Catalog change: source={}, id={} — rebuilding snapshot", event.source(), event.entityId());
+        try {
+            rebuild(event);
+        } catch (Exception e) {
+            // keep serving the previous snapshot until the next change
+            logger.error("Catalog snapshot rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    private CatalogSnapshot rebuildLocked(CatalogChangedEvent cause) {
+        long start = System.nanoTime();
+        List<GarmentEntity> garments   = garmentRepository.findByActiveTrueOrderByGarmentTypeAscIdAsc();
+        List<CategoryEntity> categories = categoryRepository.findByActiveTrueOrderByDepthAscDisplayOrderAsc();
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(versionCounter.incrementAndGet(), garments, categories);
+        current.set(snapshot);
+
+        logger.info("Catalog snapshot v{} published: {} garments, {} categories in {} ms",
+                snapshot.getVersion(), garments.size(), categories.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        eventPublisher.publishEvent(new CatalogRebuiltEvent(snapshot, cause));
+        return snapshot;
+    }
+}
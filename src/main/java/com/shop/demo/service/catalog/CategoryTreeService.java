@@ -0,0 +1,158 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.repository.projectRepository.shop.CategoryRepository;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Structural changes to the category tree. Every operation keeps
+ * categories.parent_id / depth / display_order and the category_closure table
+ * in step inside a single transaction, so subtree lookups never need a
+ * recursive walk and a move is a fixed number of set-based statements
+ * regardless of subtree size.
+ *
+ * Read paths (breadcrumbs, listing filters) use the active tree materialised
+ * in {@link CatalogSnapshot}; the closure table serves admin queries that must
+ * also see inactive categories.
+ */
+@Service
+public class CategoryTreeService {
+
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationLogger logger;
+
+    public CategoryTreeService(CategoryRepository categoryRepository,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ApplicationLogger logger) {
+        this.categoryRepository  = categoryRepository;
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.logger              = logger;
+    }
+
+    /** Seeded categories are inserted without closure rows — derive them once the app is up */
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncClosureOnStartup() {
+        try {
+            if (categoryRepository.countClosureSelfRows() != categoryRepository.count()) {
+                rebuildClosure();
+            }
+        } catch (Exception e) {
+            logger.error("Category closure sync failed: {}", e.getMessage());
+        }
+    }
+
+    /** Recomputes the whole closure table from parent_id */
+    public void rebuildClosure() {
+        Integer rows = transactionTemplate.execute(status -> {
+            categoryRepository.deleteAllClosure();
+            return categoryRepository.insertAllClosurePaths();
+        });
+        logger.info("Category closure rebuilt: {} paths", rows);
+    }
+
+    /**
+     * Creates a category as the last child of parentId (or as a root).
+     *
+     * @throws IllegalArgumentException if parentId does not exist
+     */
+    public CategoryEntity create(String name, Long parentId) {
+        return transactionTemplate.execute(status -> {
+            CategoryEntity cat = new CategoryEntity();
+            cat.setName(name);
+            cat.setActive(true);
+            cat.setParentId(parentId);
+            cat.setDepth(parentDepth(parentId) + 1);
+            cat.setDisplayOrder(nextDisplayOrder(parentId));
+
+            CategoryEntity saved = categoryRepository.saveAndFlush(cat);
+            categoryRepository.insertLeafPaths(saved.getId(), parentId);
+            return saved;
+        });
+    }
+
+    /**
+     * Re-parents a category together with its whole subtree. A null newParentId
+     * makes it a root; a null displayOrder appends it after its new siblings.
+     *
+     * @return the moved category, or empty if id does not exist
+     * @throws IllegalArgumentException if the new parent does not exist or lies inside the subtree
+     */
+    public Optional<CategoryEntity> move(Long id, Long newParentId, Integer displayOrder) {
+        return transactionTemplate.execute(status -> {
+            CategoryEntity cat = categoryRepository.findById(id).orElse(null);
+            if (cat == null) return Optional.<CategoryEntity>empty();
+
+            if (newParentId != null && categoryRepository.countPath(id, newParentId) > 0) {
+                throw new IllegalArgumentException("Cannot move a category into its own subtree");
+            }
+            int rootDepth = parentDepth(newParentId) + 1;
+
+            cat.setParentId(newParentId);
+            cat.setDepth(rootDepth);
+            cat.setDisplayOrder(displayOrder != null ? displayOrder : nextDisplayOrder(newParentId));
+            categoryRepository.saveAndFlush(cat);
+
+            categoryRepository.deleteExternalPaths(id);
+            if (newParentId != null) categoryRepository.insertSubtreePaths(id, newParentId);
+            categoryRepository.updateSubtreeDepth(id, rootDepth);
+            return Optional.of(cat);
+        });
+    }
+
+    /**
+     * Sets display_order of parentId's children to their position in orderedIds
+     * (1-based) in one batched statement set.
+     *
+     * @throws IllegalArgumentException if an id is duplicated or is not a child of parentId
+     */
+    public void reorder(Long parentId, List<Long> orderedIds) {
+        if (new HashSet<>(orderedIds).size() != orderedIds.size()) {
+            throw new IllegalArgumentException("Duplicate category id in order");
+        }
+        List<Object[]> args = new ArrayList<>(orderedIds.size());
+        for (int i = 0; i < orderedIds.size(); i++) {
+            args.add(new Object[]{ i + 1, orderedIds.get(i), parentId });
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE categories SET display_order = ? WHERE id = ? AND parent_id <=> ?", args);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    throw new IllegalArgumentException(
+                            "Category " + orderedIds.get(i) + " is not a child of " + parentId);
+                }
+            }
+        });
+    }
+
+    /** Category plus all descendants including inactive ones (empty if id does not exist) */
+    public List<CategoryEntity> subtree(Long id) {
+        return categoryRepository.findSubtree(id);
+    }
+
+    private int parentDepth(Long parentId) {
+        if (parentId == null) return -1;
+        return categoryRepository.findById(parentId)
+                .map(CategoryEntity::getDepth)
+                .orElseThrow(() -> new IllegalArgumentException("Parent category not found"));
+    }
+
+    private int nextDisplayOrder(Long parentId) {
+        Integer max = categoryRepository.findMaxDisplayOrder(parentId);
+        return max != null ? max + 1 : 1;
+    }
+}
@@ -0,0 +1,143 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.repository.projectRepository.shop.CategoryRepository;
+import com.shop.demo.service.inventory.SkuInventoryService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Bulk garment ingest for catalog imports. The whole batch is validated up
+ * front (category ids in a single lookup); rows that fail validation are
+ * reported by index and skipped, the rest are written with multi-row INSERTs
+ * of up to {@link #ROWS_PER_INSERT} rows each inside one transaction, together
+ * with their per-size stock rows.
+ *
+ * GarmentEntity uses IDENTITY ids, which stops Hibernate from batching its
+ * inserts — hence plain JDBC here. MySQL hands back the generated keys of a
+ * multi-row INSERT in row order, so ids are mapped back positionally.
+ */
+@Service
+public class GarmentBulkImportService {
+
+    static final int ROWS_PER_INSERT = 200;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO garments (name, description, garment_type, category_id, base_price, type, base_color, " +
+            "gsm, fabric_description, sizes, image_url, stock_quantity, cost_price, active, featured) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final SkuInventoryService skuInventoryService;
+
+    public GarmentBulkImportService(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    CategoryRepository categoryRepository,
+                                    SkuInventoryService skuInventoryService) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository  = categoryRepository;
+        this.skuInventoryService = skuInventoryService;
+    }
+
+    /** Rejected input row — index refers to the position in the submitted list */
+    public record RowError(int index, String error) {}
+
+    /** Created garments (with ids) in input order, plus every rejected row */
+    public record ImportResult(List<GarmentEntity> created, List<RowError> errors) {}
+
+    public ImportResult importGarments(List<GarmentEntity> rows) {
+        Set<Long> categoryIds = new HashSet<>();
+        for (GarmentEntity g : rows) {
+            if (g != null && g.getCategoryId() != null) categoryIds.add(g.getCategoryId());
+        }
+        Set<Long> knownCategories = new HashSet<>();
+        for (CategoryEntity c : categoryRepository.findAllById(categoryIds)) knownCategories.add(c.getId());
+
+        List<GarmentEntity> valid = new ArrayList<>(rows.size());
+        List<RowError> errors = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String error = validate(rows.get(i), knownCategories);
+            if (error != null) errors.add(new RowError(i, error));
+            else valid.add(rows.get(i));
+        }
+
+        if (!valid.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < valid.size(); from += ROWS_PER_INSERT) {
+                    insertChunk(valid.subList(from, Math.min(from + ROWS_PER_INSERT, valid.size())));
+                }
+                skuInventoryService.resetStock(valid);
+            });
+        }
+        return new ImportResult(valid, errors);
+    }
+
+    private static String validate(GarmentEntity g, Set<Long> knownCategories) {
+        if (g == null)                                                 return "Row is empty";
+        if (g.getName() == null || g.getName().isBlank())              return "Name is required";
+        if (g.getBasePrice() == null || g.getBasePrice() < 0)          return "Base price must be zero or more";
+        if (g.getCostPrice() != null && g.getCostPrice() < 0)          return "Cost price must be zero or more";
+        if (g.getStockQuantity() != null && g.getStockQuantity() < 0)  return "Stock quantity must be zero or more";
+        if (g.getGsm() != null && g.getGsm() <= 0)                     return "GSM must be positive";
+        if (g.getSizes() == null || g.getSizes().isBlank())            return "At least one size is required";
+        if (g.getCategoryId() != null && !knownCategories.contains(g.getCategoryId())) {
+            return "Category " + g.getCategoryId() + " does not exist";
+        }
+        return null;
+    }
+
+    private void insertChunk(List<GarmentEntity> chunk) {
+        String sql = INSERT_PREFIX + String.join(",", Collections.nCopies(chunk.size(), ROW_PLACEHOLDERS));
+        KeyHolder keys = new GeneratedKeyHolder();
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int p = 1;
+            for (GarmentEntity g : chunk) {
+                ps.setString(p++, g.getName());
+                ps.setString(p++, g.getDescription());
+                ps.setString(p++, g.getGarmentType());
+                setNullable(ps, p++, g.getCategoryId(), Types.BIGINT);
+                ps.setInt(p++, g.getBasePrice());
+                ps.setString(p++, g.getType());
+                ps.setString(p++, g.getBaseColor());
+                setNullable(ps, p++, g.getGsm(), Types.INTEGER);
+                ps.setString(p++, g.getFabricDescription());
+                ps.setString(p++, g.getSizes());
+                ps.setString(p++, g.getImageUrl());
+                ps.setInt(p++, g.getStockQuantity() != null ? g.getStockQuantity() : 0);
+                ps.setInt(p++, g.getCostPrice() != null ? g.getCostPrice() : 0);
+                ps.setBoolean(p++, g.isActive());
+                ps.setBoolean(p++, g.isFeatured());
+            }
+            return ps;
+        }, keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        if (keyList.size() != chunk.size()) {
+            throw new IllegalStateException("Expected " + chunk.size() + " generated ids, got " + keyList.size());
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            Object id = keyList.get(i).values().iterator().next();
+            chunk.get(i).setId(((Number) id).longValue());
+        }
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) ps.setNull(index, sqlType);
+        else ps.setObject(index, value, sqlType);
+    }
+}
@@ -0,0 +1,199 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Server-side filtered, sorted and keyset-paginated garment listing.
+ *
+ * The query only reads ids and sort keys from the (active, …, id) composite
+ * indexes on `garments`; the garments themselves come from the catalog
+ * snapshot, so a page costs one index range scan regardless of catalog size.
+ *
+ * Cursors are opaque base64url strings of "sort|key|id" — the last row of the
+ * previous page. Seeking past it avoids OFFSET scans on deep pages.
+ */
+@Service
+public class GarmentListingService {
+
+    public static final int DEFAULT_LIMIT = 24;
+    public static final int MAX_LIMIT     = 100;
+
+    public enum Sort {
+        PRICE_ASC("base_price", true),
+        PRICE_DESC("base_price", false),
+        NEWEST(null, false),
+        POPULAR("units_sold", false);
+
+        final String keyColumn;   // null → id is the only sort key
+        final boolean ascending;
+
+        Sort(String keyColumn, boolean ascending) {
+            this.keyColumn = keyColumn;
+            this.ascending = ascending;
+        }
+
+        public static Sort fromParam(String value) {
+            if (value == null || value.isBlank()) return NEWEST;
+            try {
+                return Sort.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort: " + value
+                        + " (expected price_asc, price_desc, newest or popular)");
+            }
+        }
+    }
+
+    /** Listing filters — every field is optional */
+    public record Filter(Long categoryId,
+                         String garmentType,
+                         String color,
+                         String size,
+                         Integer minPrice,
+                         Integer maxPrice,
+                         boolean inStockOnly) {
+    }
+
+    public record GarmentPage(List<GarmentEntity> items, String nextCursor) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    public GarmentListingService(JdbcTemplate jdbcTemplate,
+                                 CatalogSnapshotService catalogSnapshotService) {
+        this.jdbcTemplate           = jdbcTemplate;
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    /**
+     * @throws IllegalArgumentException on an invalid cursor or filter value
+     */
+    public GarmentPage list(Filter filter, Sort sort, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        CatalogSnapshot snapshot = catalogSnapshotService.get();
+
+        StringBuilder sql = new StringBuilder("SELECT id")
+                .append(sort.keyColumn != null ? ", " + sort.keyColumn : "")
+                .append(" FROM garments WHERE active = 1");
+        List<Object> args = new ArrayList<>();
+
+        if (filter.categoryId() != null) {
+            Set<Long> subtree = snapshot.getCategorySubtree(filter.categoryId());
+            if (subtree.isEmpty()) return new GarmentPage(List.of(), null);
+            sql.append(" AND category_id IN (")
+               .append(String.join(",", Collections.nCopies(subtree.size(), "?")))
+               .append(")");
+            args.addAll(subtree);
+        }
+        if (hasText(filter.garmentType())) {
+            sql.append(" AND garment_type = ?");
+            args.add(filter.garmentType().trim());
+        }
+        if (hasText(filter.color())) {
+            sql.append(" AND base_color = ?");
+            args.add(filter.color().trim());
+        }
+        if (hasText(filter.size())) {
+            sql.append(" AND EXISTS (SELECT 1 FROM garment_skus s WHERE s.garment_id = garments.id AND s.size = ?")
+               .append(filter.inStockOnly() ? " AND s.stock_quantity > 0)" : ")");
+            args.add(filter.size().trim());
+        }
+        if (filter.minPrice() != null) {
+            sql.append(" AND base_price >= ?");
+            args.add(filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            sql.append(" AND base_price <= ?");
+            args.add(filter.maxPrice());
+        }
+        if (filter.inStockOnly()) {
+            sql.append(" AND stock_quantity > 0");
+        }
+
+        String dir = sort.ascending ? " ASC" : " DESC";
+        StringBuilder order = new StringBuilder(" ORDER BY ");
+        if (sort.keyColumn != null) order.append(sort.keyColumn).append(dir).append(", ");
+        order.append("id").append(dir).append(" LIMIT ?");
+
+        // Rows newer than the snapshot are skipped, so keep seeking until the page
+        // is full — plus one extra row that tells us whether a next page exists —
+        // or the index runs out. A short page is therefore always the last one.
+        List<GarmentEntity> items = new ArrayList<>(pageSize + 1);
+        long[] seek = cursor == null || cursor.isBlank() ? null : decodeCursor(sort, cursor);
+        long[] lastKept = null;
+        while (true) {
+            int want = pageSize + 1 - items.size();
+            StringBuilder round = new StringBuilder(sql);
+            List<Object> roundArgs = new ArrayList<>(args);
+            if (seek != null) appendSeek(round, roundArgs, sort, seek);
+            round.append(order);
+            roundArgs.add(want);
+
+            List<long[]> rows = jdbcTemplate.query(round.toString(), (rs, i) -> new long[] {
+                    sort.keyColumn != null ? rs.getLong(sort.keyColumn) : 0L,
+                    rs.getLong("id")
+            }, roundArgs.toArray());
+
+            for (long[] row : rows) {
+                GarmentEntity g = snapshot.getGarment(row[1]);
+                if (g == null) continue;
+                items.add(g);
+                if (items.size() <= pageSize) lastKept = row;
+            }
+            if (rows.size() < want || items.size() > pageSize) break;
+            seek = rows.get(rows.size() - 1);
+        }
+
+        if (items.size() <= pageSize) return new GarmentPage(items, null);
+        return new GarmentPage(items.subList(0, pageSize), encodeCursor(sort, lastKept[0], lastKept[1]));
+    }
+
+    // ── Keyset seek predicate ────────────────────────────────
+
+    /** key is { sort key, id } of the last row already returned */
+    private void appendSeek(StringBuilder sql, List<Object> args, Sort sort, long[] key) {
+        String cmp = sort.ascending ? ">" : "<";
+        if (sort.keyColumn == null) {
+            sql.append(" AND id ").append(cmp).append(" ?");
+            args.add(key[1]);
+        } else {
+            sql.append(" AND (").append(sort.keyColumn).append(' ').append(cmp).append(" ?")
+               .append(" OR (").append(sort.keyColumn).append(" = ? AND id ").append(cmp).append(" ?))");
+            args.add(key[0]);
+            args.add(key[0]);
+            args.add(key[1]);
+        }
+    }
+
+    private static String encodeCursor(Sort sort, long key, long id) {
+        String raw = sort.name() + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(Sort sort, String cursor) {
+        String[] parts;
+        long[] key;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\|");
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid cursor");
+            key = new long[] { Long.parseLong(parts[1]), Long.parseLong(parts[2]) };
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and bad base64 both land here
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (!parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort.name().toLowerCase(Locale.ROOT));
+        }
+        return key;
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+}
@@ -0,0 +1,92 @@
+package com.shop.demo.service.catalog;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+
+import java.util.*;
+
+/**
+ * Everything the home page renders, computed in one pass over the active
+ * catalog whenever the snapshot is rebuilt (so setFeatured / setActive
+ * republish it automatically).
+ *
+ * mens / womens / kids — first {@value #FEATURED_PER_TYPE} featured garments per type (by id)
+ * newArrivals          — newest {@value #NEW_ARRIVALS} garments
+ * bestSellers          — top {@value #BEST_SELLERS} garments by units sold
+ * categories           — active top-level categories
+ */
+public record HomePageBundle(List<GarmentEntity> mens,
+                             List<GarmentEntity> womens,
+                             List<GarmentEntity> kids,
+                             List<GarmentEntity> newArrivals,
+                             List<GarmentEntity> bestSellers,
+                             List<CategoryEntity> categories) {
+
+    public static final int FEATURED_PER_TYPE = 4;
+    public static final int NEW_ARRIVALS      = 8;
+    public static final int BEST_SELLERS      = 8;
+
+    private static final Comparator<GarmentEntity> NEWEST_FIRST =
+            Comparator.comparing(GarmentEntity::getId).reversed();
+    private static final Comparator<GarmentEntity> BEST_SELLING_FIRST =
+            Comparator.comparingInt(HomePageBundle::unitsSold).reversed()
+                    .thenComparing(GarmentEntity::getId);
+
+    /**
+     * @param activeGarments active garments ordered by garmentType, then id
+     * @param activeCategories active categories ordered by depth, then displayOrder
+     */
+    static HomePageBundle build(List<GarmentEntity> activeGarments, List<CategoryEntity> activeCategories) {
+        List<GarmentEntity> mens   = new ArrayList<>(FEATURED_PER_TYPE);
+        List<GarmentEntity> womens = new ArrayList<>(FEATURED_PER_TYPE);
+        List<GarmentEntity> kids   = new ArrayList<>(FEATURED_PER_TYPE);
+
+        // bounded heaps — the head is the weakest entry and is evicted first
+        PriorityQueue<GarmentEntity> newest = new PriorityQueue<>(NEW_ARRIVALS + 1, NEWEST_FIRST.reversed());
+        PriorityQueue<GarmentEntity> best   = new PriorityQueue<>(BEST_SELLERS + 1, BEST_SELLING_FIRST.reversed());
+
+        for (GarmentEntity g : activeGarments) {
+            if (g.isFeatured() && g.getGarmentType() != null) {
+                List<GarmentEntity> bucket = switch (g.getGarmentType()) {
+                    case "mens"   -> mens;
+                    case "womens" -> womens;
+                    case "kids"   -> kids;
+                    default       -> null;
+                };
+                if (bucket != null && bucket.size() < FEATURED_PER_TYPE) bucket.add(g);
+            }
+            offer(newest, g, NEW_ARRIVALS);
+            if (unitsSold(g) > 0) offer(best, g, BEST_SELLERS);
+        }
+
+        List<CategoryEntity> topLevel = new ArrayList<>();
+        for (CategoryEntity c : activeCategories) {
+            if (c.getDepth() == 0) topLevel.add(c);
+        }
+
+        return new HomePageBundle(
+                List.copyOf(mens), List.copyOf(womens), List.copyOf(kids),
+                drain(newest, NEWEST_FIRST), drain(best, BEST_SELLING_FIRST),
+                List.copyOf(topLevel));
+    }
+
+    /** Legacy /server/garments/featured shape: { mens, womens, kids } */
+    public Map<String, List<GarmentEntity>> featuredByType() {
+        return Map.of("mens", mens, "womens", womens, "kids", kids);
+    }
+
+    private static void offer(PriorityQueue<GarmentEntity> heap, GarmentEntity g, int capacity) {
+        heap.offer(g);
+        if (heap.size() > capacity) heap.poll();
+    }
+
+    private static List<GarmentEntity> drain(PriorityQueue<GarmentEntity> heap, Comparator<GarmentEntity> order) {
+        List<GarmentEntity> out = new ArrayList<>(heap);
+        out.sort(order);
+        return List.copyOf(out);
+    }
+
+    private static int unitsSold(GarmentEntity g) {
+        return g.getUnitsSold() != null ? g.getUnitsSold() : 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.shop.demo.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Streams admin exports (garments, users, sales lines) straight from a MySQL
+ * result set to the HTTP response as NDJSON or CSV. Rows are written as they
+ * arrive and never collected, so memory stays constant whatever the table size.
+ *
+ * MySQL Connector/J only honours a positive fetch size when useCursorFetch is
+ * set on the connection, which would turn every statement in the pool into a
+ * server-side prepare. Exports use the driver's row-streaming mode instead
+ * (fetch size Integer.MIN_VALUE): one row is held in memory at a time and the
+ * connection stays busy until the last row is written.
+ */
+@Service
+public class DataExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        final String contentType;
+        final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension   = extension;
+        }
+
+        /** @throws IllegalArgumentException for anything but ndjson / csv */
+        public static Format fromParam(String param) {
+            if (param == null || param.isBlank()) return NDJSON;
+            return switch (param.trim().toLowerCase(Locale.ROOT)) {
+                case "ndjson", "json" -> NDJSON;
+                case "csv"            -> CSV;
+                default -> throw new IllegalArgumentException("Unknown export format: " + param);
+            };
+        }
+    }
+
+    /** Available exports — column aliases become NDJSON keys / CSV headers */
+    public enum Export {
+        GARMENTS("garments",
+                "SELECT id, name, description, garment_type AS garmentType, category_id AS categoryId, " +
+                "base_price AS basePrice, cost_price AS costPrice, type, base_color AS baseColor, gsm, " +
+                "fabric_description AS fabricDescription, sizes, image_url AS imageUrl, " +
+                "stock_quantity AS stockQuantity, units_sold AS unitsSold, active, featured, " +
+                "created_at AS createdAt FROM garments ORDER BY id"),
+
+        // same fields as UserController.UserSummaryDTO — no passwords or tokens
+        USERS("users",
+                "SELECT id, username, email, mobile_number AS mobileNumber, role, active, " +
+                "creation_time AS creationTime FROM users ORDER BY id"),
+
+        // one row per order line — the raw data behind the analytics summary
+        SALES_LINES("sales",
+                "SELECT oi.id AS orderItemId, oi.order_id AS orderId, o.created_at AS orderedAt, " +
+                "o.payment_status AS paymentStatus, o.order_status AS orderStatus, " +
+                "oi.garment_id AS garmentId, g.name AS garmentName, g.base_color AS color, oi.size, " +
+                "oi.quantity, oi.unit_price AS unitPrice, oi.unit_price * oi.quantity AS revenue, " +
+                "COALESCE(g.cost_price, 0) * oi.quantity AS cost " +
+                "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+                "LEFT JOIN garments g ON g.id = oi.garment_id ORDER BY oi.id");
+
+        final String fileName;
+        final String sql;
+
+        Export(String fileName, String sql) {
+            this.fileName = fileName;
+            this.sql      = sql;
+        }
+    }
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationLogger logger;
+
+    public DataExportService(@Qualifier("projectDataSource") DataSource dataSource,
+                             ObjectMapper objectMapper,
+                             ApplicationLogger logger) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);   // Connector/J row streaming
+        this.objectMapper          = objectMapper;
+        this.logger                = logger;
+    }
+
+    /** Sets download headers and streams every row of the export into the response */
+    public void export(Export export, Format format, HttpServletResponse response) throws IOException {
+        response.setContentType(format.contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
+                export.fileName + "-" + LocalDate.now() + "." + format.extension + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        long start = System.nanoTime();
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 16 * 1024);
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+        long[] rows = { 0 };
+        try {
+            streamingJdbcTemplate.query(export.sql, rs -> {
+                try {
+                    writer.write(rs);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);   // client went away — abandons the result set
+                }
+            });
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            logger.warn("Export {} aborted after {} rows: {}", export, rows[0], e.getCause().getMessage());
+            return;
+        }
+        logger.info("Export {} ({}): {} rows in {} ms",
+                export, format, rows[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // ROW WRITERS
+    // ─────────────────────────────────────────────────────────
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+        void finish() throws IOException;
+    }
+
+    /** One JSON object per line; temporal values as ISO-8601 strings */
+    private final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator json;
+        private String[] names;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            if (names == null) names = columnNames(rs.getMetaData());
+            json.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                Object value = rs.getObject(i + 1);
+                json.writeFieldName(names[i]);
+                if (value == null)                      json.writeNull();
+                else if (value instanceof Boolean b)    json.writeBoolean(b);
+                else if (value instanceof BigDecimal d) json.writeNumber(d);
+                else if (value instanceof Integer n)    json.writeNumber(n);
+                else if (value instanceof Long n)       json.writeNumber(n);
+                else if (value instanceof Number n)     json.writeNumber(n.doubleValue());
+                else                                    json.writeString(text(value));
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    /** RFC 4180 CSV with a header row; text cells that a spreadsheet would evaluate are prefixed with ' */
+    private static final class CsvWriter implements RowWriter {
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder(256);
+        private String[] names;
+
+        CsvWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            if (names == null) {
+                names = columnNames(rs.getMetaData());
+                for (int i = 0; i < names.length; i++) appendCell(i, names[i], false);
+                flushLine();
+            }
+            for (int i = 0; i < names.length; i++) {
+                Object value = rs.getObject(i + 1);
+                appendCell(i, value == null ? "" : text(value), !(value instanceof Number));
+            }
+            flushLine();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+
+        private void appendCell(int index, String value, boolean guardFormula) {
+            if (index > 0) line.append(',');
+            if (guardFormula && !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (quote) line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            else line.append(value);
+        }
+
+        private void flushLine() throws IOException {
+            line.append("\r\n");
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            line.setLength(0);
+        }
+    }
+
+    private static String[] columnNames(ResultSetMetaData meta) throws SQLException {
+        String[] names = new String[meta.getColumnCount()];
+        for (int i = 0; i < names.length; i++) names[i] = meta.getColumnLabel(i + 1);
+        return names;
+    }
+
+    private static String text(Object value) {
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime().toString();
+        return value.toString();
+    }
+}
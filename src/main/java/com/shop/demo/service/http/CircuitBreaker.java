@@ -0,0 +1,55 @@
+package com.shop.demo.service.http;
+
+/**
+ * Consecutive-failure circuit breaker. After failureThreshold failures in a
+ * row the circuit opens and calls are refused for openMillis; then a single
+ * trial call is let through (half-open) — success closes the circuit,
+ * failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis       = openMillis;
+    }
+
+    /** True if a call may go out now; in half-open only the first caller gets through */
+    synchronized boolean tryAcquire(long nowMillis) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMillis < openUntil) return false;
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                return false;   // a trial call is already in flight
+        }
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure(long nowMillis) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = nowMillis + openMillis;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,12 @@
+package com.shop.demo.service.http;
+
+/**
+ * Thrown without calling the provider — its circuit is open or its bulkhead
+ * is full. Nothing was sent, so the call is always safe to retry later.
+ */
+public class OutboundCallRejectedException extends RuntimeException {
+
+    public OutboundCallRejectedException(String message) {
+        super(message);
+    }
+}
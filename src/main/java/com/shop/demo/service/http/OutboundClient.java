@@ -0,0 +1,124 @@
+package com.shop.demo.service.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Guarded access to one provider's pooled RestTemplate. Every call goes
+ * through, in order:
+ * the bulkhead (at most maxConcurrent calls in flight; a caller waits at most
+ * acquireTimeout for a slot, then is refused),
+ * the circuit breaker (refuses at once while the provider is known to be down),
+ * and a timer recorded as outbound.http.calls{provider, operation, outcome}.
+ *
+ * Only connection errors, timeouts and 5xx count against the circuit — a 4xx
+ * means the provider is up and simply disagreed with the request.
+ * Instances are built by {@link OutboundHttpClients}.
+ */
+public final class OutboundClient {
+
+    private final String provider;
+    private final RestTemplate restTemplate;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final long acquireTimeoutMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    OutboundClient(String provider,
+                   RestTemplate restTemplate,
+                   int maxConcurrent,
+                   long acquireTimeoutMillis,
+                   CircuitBreaker circuitBreaker,
+                   MeterRegistry meterRegistry) {
+        this.provider             = provider;
+        this.restTemplate         = restTemplate;
+        this.maxConcurrent        = maxConcurrent;
+        this.bulkhead             = new Semaphore(maxConcurrent);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.circuitBreaker       = circuitBreaker;
+        this.meterRegistry        = meterRegistry;
+
+        Gauge.builder("outbound.http.in_flight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .tag("provider", provider).register(meterRegistry);
+        Gauge.builder("outbound.http.circuit_open", circuitBreaker,
+                        cb -> cb.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("provider", provider).register(meterRegistry);
+    }
+
+    public String provider() {
+        return provider;
+    }
+
+    /**
+     * Runs call against the provider's RestTemplate.
+     *
+     * @throws OutboundCallRejectedException if the circuit is open or the bulkhead stays full
+     * @throws org.springframework.web.client.RestClientException whatever the call itself threw
+     */
+    public <T> T call(String operation, Function<RestTemplate, T> call) {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            record(operation, "rejected", 0);
+            throw new OutboundCallRejectedException(provider + " busy (all " + maxConcurrent + " slots in use)");
+        }
+        // after the bulkhead, so a half-open trial that is let through always goes out
+        if (!circuitBreaker.tryAcquire(System.currentTimeMillis())) {
+            bulkhead.release();
+            record(operation, "rejected", 0);
+            throw new OutboundCallRejectedException(provider + " unavailable (circuit open)");
+        }
+
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            T result = call.apply(restTemplate);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (HttpClientErrorException e) {
+            outcome = "client_error";
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (HttpServerErrorException e) {
+            outcome = "server_error";
+            circuitBreaker.onFailure(System.currentTimeMillis());
+            throw e;
+        } catch (ResourceAccessException e) {
+            outcome = "io_error";
+            circuitBreaker.onFailure(System.currentTimeMillis());
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            circuitBreaker.onFailure(System.currentTimeMillis());   // also ends a half-open trial
+            throw e;
+        } finally {
+            bulkhead.release();
+            record(operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("outbound.http.calls")
+                .tag("provider", provider)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,112 @@
+package com.shop.demo.service.http;
+
+import com.shop.demo.logMaintain.ApplicationLogger;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outbound HTTP clients, one per provider, created once and shared by
+ * every caller. Each provider gets its own keep-alive connection pool (sized
+ * to its bulkhead, so a slow provider cannot starve the other), its own
+ * connect / response timeouts and its own circuit breaker — see
+ * {@link OutboundClient}. Settings come from outbound.* in
+ * application.properties.
+ */
+@Service
+public class OutboundHttpClients {
+
+    private final OutboundClient razorpay;
+    private final OutboundClient shiprocket;
+    private final List<CloseableHttpClient> httpClients = new ArrayList<>();
+    private final ApplicationLogger logger;
+
+    public OutboundHttpClients(MeterRegistry meterRegistry,
+                               ApplicationLogger logger,
+                               @Value("${outbound.razorpay.connect-timeout-ms:2000}") long razorpayConnectMs,
+                               @Value("${outbound.razorpay.response-timeout-ms:8000}") long razorpayResponseMs,
+                               @Value("${outbound.razorpay.max-concurrent:20}") int razorpayMaxConcurrent,
+                               @Value("${outbound.shiprocket.connect-timeout-ms:3000}") long shiprocketConnectMs,
+                               @Value("${outbound.shiprocket.response-timeout-ms:15000}") long shiprocketResponseMs,
+                               @Value("${outbound.shiprocket.max-concurrent:8}") int shiprocketMaxConcurrent,
+                               @Value("${outbound.bulkhead.acquire-timeout-ms:200}") long acquireTimeoutMs,
+                               @Value("${outbound.circuit.failure-threshold:5}") int failureThreshold,
+                               @Value("${outbound.circuit.open-seconds:30}") long openSeconds) {
+        this.logger     = logger;
+        this.razorpay   = build("razorpay", razorpayConnectMs, razorpayResponseMs, razorpayMaxConcurrent,
+                acquireTimeoutMs, failureThreshold, openSeconds, meterRegistry);
+        this.shiprocket = build("shiprocket", shiprocketConnectMs, shiprocketResponseMs, shiprocketMaxConcurrent,
+                acquireTimeoutMs, failureThreshold, openSeconds, meterRegistry);
+    }
+
+    public OutboundClient razorpay() {
+        return razorpay;
+    }
+
+    public OutboundClient shiprocket() {
+        return shiprocket;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (CloseableHttpClient client : httpClients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger.warn("Closing outbound HTTP client failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private OutboundClient build(String provider,
+                                 long connectMs,
+                                 long responseMs,
+                                 int maxConcurrent,
+                                 long acquireTimeoutMs,
+                                 int failureThreshold,
+                                 long openSeconds,
+                                 MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConcurrent)
+                .setMaxConnPerRoute(maxConcurrent)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        CloseableHttpClient http = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // the bulkhead already bounds concurrency; never queue long for a pooled connection
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+        httpClients.add(http);
+
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(http));
+        logger.info("Outbound client {}: pool {}, connect {} ms, response {} ms",
+                provider, maxConcurrent, connectMs, responseMs);
+        return new OutboundClient(provider, restTemplate, maxConcurrent, acquireTimeoutMs,
+                new CircuitBreaker(failureThreshold, openSeconds * 1000), meterRegistry);
+    }
+}
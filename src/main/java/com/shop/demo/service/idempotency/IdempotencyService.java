@@ -0,0 +1,254 @@
+package com.shop.demo.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a side-effecting request at most once per key. The first request
+ * claims the key with an INSERT IGNORE into idempotency_keys, runs, and stores
+ * its status and JSON body; duplicates get that stored response replayed
+ * (marked with an Idempotent-Replayed header) without touching the order
+ * tables. A duplicate arriving while the first is still running gets 409.
+ *
+ * Completed responses are also kept in a bounded in-memory LRU, so a retry
+ * storm for the same key is answered without any database round trip.
+ *
+ * Only final outcomes are stored: a 5xx or an exception releases the claim so
+ * the client can retry. A claim left behind by a crash is taken over after
+ * {@link #STALE_CLAIM}. Rows are kept for {@link #RETENTION} and purged
+ * hourly.
+ *
+ * Order placement records its order id on the claim inside the order's own
+ * transaction ({@link #attachOrder}). A claim with an order is never released
+ * or taken over: if storing the response failed after the order committed, a
+ * retry is answered from the order instead of placing it again.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String SCOPE_CHECKOUT = "checkout";
+    public static final String SCOPE_VERIFY   = "payment-verify";
+
+    static final int MAX_KEY_LENGTH      = 128;
+    static final int CACHE_CAPACITY      = 10_000;
+    static final Duration STALE_CLAIM    = Duration.ofMinutes(2);
+    static final Duration RETENTION      = Duration.ofDays(7);
+    static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    /** A claimed key, handed to order placement so it can attach its order id */
+    public record Key(String scope, String key) {
+
+        /** The key for a request, or null if it sent none */
+        public static Key of(String scope, String key) {
+            return key == null || key.isBlank() ? null : new Key(scope, key);
+        }
+    }
+
+    /** A stored final response; ownerId is the user the key belongs to (null if the key is not tied to a user) */
+    private record Stored(Long ownerId, int status, String body) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationLogger logger;
+
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "idempotency-purge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, Stored> recent = new LinkedHashMap<>(1_024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              ApplicationLogger logger) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.logger       = logger;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPurge() {
+        purger.scheduleWithFixedDelay(this::purge, 0, PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPurge() {
+        purger.shutdownNow();
+    }
+
+    private void purge() {
+        try {
+            int rows = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?",
+                    Timestamp.from(Instant.now().minus(RETENTION)));
+            if (rows > 0) logger.info("Idempotency keys purged: {}", rows);
+        } catch (Exception e) {
+            logger.error("Idempotency key purge failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs action unless key was already used in scope, in which case the
+     * stored response is replayed. A null or blank key runs action directly.
+     * A key used by another user is rejected with 422.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Long ownerId, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Idempotency key is too long"));
+        }
+        String cacheKey = scope + '\n' + key;
+
+        Stored cached;
+        synchronized (recent) {
+            cached = recent.get(cacheKey);
+        }
+        if (cached != null) return replay(cached, ownerId);
+
+        if (!claim(scope, key, ownerId)) {
+            Stored stored = load(scope, key);
+            if (stored == null) stored = completeFromOrder(scope, key);
+            if (stored == null) {
+                return ResponseEntity.status(409).header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("error", "This request is already being processed"));
+            }
+            remember(cacheKey, stored);
+            return replay(stored, ownerId);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            release(scope, key);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            release(scope, key);
+            return response;
+        }
+
+        Stored stored = new Stored(ownerId, response.getStatusCode().value(), toJson(response.getBody()));
+        jdbcTemplate.update("UPDATE idempotency_keys SET status_code = ?, response_body = ?, completed_at = ? " +
+                        "WHERE scope = ? AND idem_key = ?",
+                stored.status(), stored.body(), Timestamp.from(Instant.now()), scope, key);
+        remember(cacheKey, stored);
+        return response;
+    }
+
+    /** True if this request now owns the key — newly inserted, or taken over from a stale claim */
+    private boolean claim(String scope, String key, Long ownerId) {
+        Timestamp now = Timestamp.from(Instant.now());
+        int inserted = jdbcTemplate.update(
+                "INSERT IGNORE INTO idempotency_keys (scope, idem_key, owner_id, created_at) VALUES (?, ?, ?, ?)",
+                scope, key, ownerId, now);
+        if (inserted == 1) return true;
+        int takenOver = jdbcTemplate.update(
+                "UPDATE idempotency_keys SET created_at = ? WHERE scope = ? AND idem_key = ? " +
+                "AND status_code IS NULL AND order_id IS NULL AND created_at < ? AND owner_id <=> ?",
+                now, scope, key, Timestamp.from(Instant.now().minus(STALE_CLAIM)), ownerId);
+        if (takenOver == 1) logger.warn("Idempotency key {}:{} taken over from a stale claim", scope, key);
+        return takenOver == 1;
+    }
+
+    /**
+     * Records the order placed under key — call inside the order's
+     * transaction, so the claim and the order commit together.
+     */
+    public void attachOrder(Key key, Long orderId) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET order_id = ? WHERE scope = ? AND idem_key = ?",
+                orderId, key.scope(), key.key());
+    }
+
+    /**
+     * For a claim whose order committed but whose response was never stored:
+     * stores and returns the order-placed response, or null if there is no order.
+     */
+    private Stored completeFromOrder(String scope, String key) {
+        List<Stored> rows = jdbcTemplate.query(
+                "SELECT owner_id, order_id FROM idempotency_keys " +
+                "WHERE scope = ? AND idem_key = ? AND status_code IS NULL AND order_id IS NOT NULL",
+                (rs, i) -> {
+                    long orderId = rs.getLong(2);
+                    return new Stored((Long) rs.getObject(1, Long.class), 200, toJson(Map.of(
+                            "id", orderId, "orderId", orderId, "message", "Order placed successfully")));
+                },
+                scope, key);
+        if (rows.isEmpty()) return null;
+        Stored stored = rows.get(0);
+        jdbcTemplate.update("UPDATE idempotency_keys SET status_code = ?, response_body = ?, completed_at = ? " +
+                        "WHERE scope = ? AND idem_key = ? AND status_code IS NULL",
+                stored.status(), stored.body(), Timestamp.from(Instant.now()), scope, key);
+        logger.warn("Idempotency key {}:{} completed from its committed order", scope, key);
+        return stored;
+    }
+
+    /** Completed response for the key, or null while the first request is still running */
+    private Stored load(String scope, String key) {
+        List<Stored> rows = jdbcTemplate.query(
+                "SELECT owner_id, status_code, response_body FROM idempotency_keys " +
+                "WHERE scope = ? AND idem_key = ? AND status_code IS NOT NULL",
+                (rs, i) -> new Stored((Long) rs.getObject(1, Long.class), rs.getInt(2), rs.getString(3)),
+                scope, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void release(String scope, String key) {
+        // a claim whose order committed stays — a retry is answered from the order
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE scope = ? AND idem_key = ? " +
+                        "AND status_code IS NULL AND order_id IS NULL",
+                scope, key);
+    }
+
+    private void remember(String cacheKey, Stored stored) {
+        synchronized (recent) {
+            recent.put(cacheKey, stored);
+        }
+    }
+
+    private static ResponseEntity<?> replay(Stored stored, Long ownerId) {
+        if (!Objects.equals(stored.ownerId(), ownerId)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", "This key was already used for a different request"));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header("Idempotent-Replayed", "true");
+        if (stored.body() == null) return builder.build();
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String toJson(Object body) {
+        if (body == null) return null;
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response for idempotency store", e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.shop.demo.service.inventory;
+
+import com.shop.demo.database.entity.project.shop.CartItemEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.inventory.SkuInventoryService.SkuQuantity;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-boxed stock holds between Razorpay order creation and payment verify.
+ * Held units are taken out of garment_skus straight away (so listings and
+ * other checkouts see them as gone) and recorded in inventory_reservations
+ * under the Razorpay order id. A hold ends in one of three ways:
+ * confirmed when the order is placed (claimed by {@link #claim} inside the
+ * placement transaction), released when the shopper abandons the payment
+ * (closes the Razorpay modal), or expired after the TTL. A failed payment
+ * attempt keeps the hold: Razorpay lets the shopper retry within the same
+ * order, and that retry must still find its units.
+ *
+ * A user has at most one hold — a new one replaces the previous, so retrying
+ * a payment never holds the cart twice. Expiry runs on an in-process
+ * {@link TimingWheel} keyed by user; the table is the source of truth and the
+ * wheel is re-armed from it on startup. A wheel entry whose hold has already
+ * ended (or been replaced by a later one) expires nothing.
+ *
+ * Lock order everywhere: reservation rows, then SKUs, then garments.
+ */
+@Service
+public class InventoryReservationService {
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final int WHEEL_SLOTS  = 1_024;   // one revolution ≈ 17 min, longer than the default TTL
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SkuInventoryService skuInventoryService;
+    private final ApplicationLogger logger;
+    private final Duration ttl;
+
+    private final TimingWheel<Long> expiryWheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SLOTS, System.currentTimeMillis());
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reservation-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public InventoryReservationService(JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       SkuInventoryService skuInventoryService,
+                                       ApplicationLogger logger,
+                                       @Value("${inventory.reservation.ttl-seconds:600}") long ttlSeconds) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.skuInventoryService = skuInventoryService;
+        this.logger              = logger;
+        this.ttl                 = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /** Re-arms expiry for holds that outlived the previous process, then starts the wheel */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startExpiry() {
+        try {
+            List<Object[]> pending = jdbcTemplate.query(
+                    "SELECT user_id, MAX(expires_at) FROM inventory_reservations GROUP BY user_id",
+                    (rs, i) -> new Object[]{ rs.getLong(1), rs.getTimestamp(2).toInstant() });
+            for (Object[] p : pending) expiryWheel.schedule((Long) p[0], (Instant) p[1]);
+            if (!pending.isEmpty()) logger.info("Reservation expiry re-armed for {} users", pending.size());
+        } catch (Exception e) {
+            logger.error("Reservation expiry re-arm failed: {}", e.getMessage());
+        }
+        ticker.scheduleWithFixedDelay(this::expireDue, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopExpiry() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Holds the cart's units for the TTL under reference (the Razorpay order
+     * id), replacing any hold the user already had.
+     *
+     * @return when the hold expires
+     * @throws OutOfStockException listing every line that cannot be held (nothing is held then)
+     * @throws IllegalArgumentException if a cart line has no positive quantity
+     */
+    public Instant reserve(Long userId, String reference, List<CartItemEntity> cartItems) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        List<SkuQuantity> lines = new ArrayList<>(cartItems.size());
+        for (CartItemEntity ci : cartItems) {
+            if (ci.getQuantity() == null || ci.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for garment " + ci.getGarmentId());
+            }
+            lines.add(new SkuQuantity(ci.getGarmentId(), ci.getSize(), ci.getQuantity()));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<SkuQuantity> previous = claim(userId);
+            skuInventoryService.hold(lines, previous);
+
+            Timestamp expires = Timestamp.from(expiresAt);
+            List<Object[]> rows = new ArrayList<>(lines.size());
+            for (SkuQuantity l : lines) {
+                rows.add(new Object[]{ reference, userId, l.garmentId(), l.size(), l.quantity(), expires });
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO inventory_reservations (reference, user_id, garment_id, size, quantity, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        });
+        expiryWheel.schedule(userId, expiresAt);
+        return expiresAt;
+    }
+
+    /**
+     * Removes and returns the user's current hold. Must run inside the
+     * caller's transaction: the units stay out of stock, so the caller either
+     * sells them (netting them against the order lines) or restocks them.
+     */
+    public List<SkuQuantity> claim(Long userId) {
+        return take("user_id = ?", userId);
+    }
+
+    /**
+     * As {@link #claim(Long)}, but only the hold made for reference (the
+     * Razorpay order being paid). A hold for some other order stays in place
+     * and ends on its own.
+     */
+    public List<SkuQuantity> claim(Long userId, String reference) {
+        return take("reference = ? AND user_id = ?", reference, userId);
+    }
+
+    /**
+     * Units the user currently holds, by garment id and size — already taken
+     * out of garment_skus, so they count as available to this user. A plain
+     * read; nothing is locked or ended.
+     */
+    public Map<Long, Map<String, Integer>> held(Long userId) {
+        Map<Long, Map<String, Integer>> held = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT garment_id, size, quantity FROM inventory_reservations WHERE user_id = ? AND expires_at > ?",
+                rs -> {
+                    held.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                        .merge(rs.getString(2), rs.getInt(3), Integer::sum);
+                },
+                userId, Timestamp.from(Instant.now()));
+        return held;
+    }
+
+    /**
+     * Ends the hold under reference and returns its units to stock — the
+     * payment was abandoned. Only the user's own hold is touched.
+     *
+     * @return units returned to stock
+     */
+    public int release(String reference, Long userId) {
+        Integer units = transactionTemplate.execute(status -> {
+            List<SkuQuantity> held = take("reference = ? AND user_id = ?", reference, userId);
+            skuInventoryService.restock(held);
+            return held.stream().mapToInt(SkuQuantity::quantity).sum();
+        });
+        if (units != null && units > 0) logger.info("Reservation {} released: {} units restocked", reference, units);
+        return units != null ? units : 0;
+    }
+
+    private void expireDue() {
+        for (Long userId : expiryWheel.advance(System.currentTimeMillis())) {
+            try {
+                Integer units = transactionTemplate.execute(status -> {
+                    List<SkuQuantity> held = take("user_id = ? AND expires_at <= ?", userId, Timestamp.from(Instant.now()));
+                    skuInventoryService.restock(held);
+                    return held.stream().mapToInt(SkuQuantity::quantity).sum();
+                });
+                if (units != null && units > 0) logger.info("Reservation of user {} expired: {} units restocked", userId, units);
+            } catch (Exception e) {
+                // retry on the next tick rather than leaving the units stranded
+                logger.error("Reservation expiry failed for user {}: {}", userId, e.getMessage());
+                expiryWheel.schedule(userId, Instant.now().plusMillis(TICK_MILLIS));
+            }
+        }
+    }
+
+    /** Locks, deletes and returns matching reservation rows (caller's transaction) */
+    private List<SkuQuantity> take(String where, Object... args) {
+        List<Long> ids = new ArrayList<>();
+        List<SkuQuantity> held = jdbcTemplate.query(
+                "SELECT id, garment_id, size, quantity FROM inventory_reservations WHERE " + where + " FOR UPDATE",
+                (rs, i) -> {
+                    ids.add(rs.getLong(1));
+                    return new SkuQuantity(rs.getLong(2), rs.getString(3), rs.getInt(4));
+                }, args);
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM inventory_reservations WHERE id IN (" +
+                    String.join(",", Collections.nCopies(ids.size(), "?")) + ")", ids.toArray());
+        }
+        return held;
+    }
+}
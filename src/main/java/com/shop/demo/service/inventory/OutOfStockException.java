@@ -0,0 +1,20 @@
+package com.shop.demo.service.inventory;
+
+import java.util.List;
+
+/** Thrown when one or more order lines ask for more units than a garment size has left */
+public class OutOfStockException extends RuntimeException {
+
+    /** A line that cannot be filled — available is what is left of that size (0 if it is not offered) */
+    public record Shortage(Long garmentId, String size, int requested, int available) {}
+
+    private final List<Shortage> shortages;
+
+    public OutOfStockException(List<Shortage> shortages) {
+        super(shortages.size() + " order line(s) out of stock, first: garment "
+                + shortages.get(0).garmentId() + " size " + shortages.get(0).size());
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<Shortage> getShortages() { return shortages; }
+}
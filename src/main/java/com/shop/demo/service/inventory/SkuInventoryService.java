@@ -0,0 +1,339 @@
+package com.shop.demo.service.inventory;
+
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.entity.project.shop.GarmentSkuEntity;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentSkuRepository;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Per-size (SKU) inventory. garment_skus holds the stock of every
+ * garment × size; garments.stock_quantity is kept equal to their sum so
+ * listing filters and the admin screens can keep reading a single column.
+ *
+ * A garment's size list still lives in garments.sizes (CSV) — it is parsed
+ * only when a garment is written, never on a read path.
+ *
+ * Every stock write publishes a {@link StockChangedEvent}.
+ */
+@Service
+public class SkuInventoryService {
+
+    private final GarmentSkuRepository garmentSkuRepository;
+    private final GarmentRepository garmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApplicationLogger logger;
+
+    public SkuInventoryService(GarmentSkuRepository garmentSkuRepository,
+                               GarmentRepository garmentRepository,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ApplicationEventPublisher eventPublisher,
+                               ApplicationLogger logger) {
+        this.garmentSkuRepository = garmentSkuRepository;
+        this.garmentRepository    = garmentRepository;
+        this.jdbcTemplate         = jdbcTemplate;
+        this.transactionTemplate  = transactionTemplate;
+        this.eventPublisher       = eventPublisher;
+        this.logger               = logger;
+    }
+
+    /** Seeded and legacy garments have no SKU rows — derive them from sizes + stock_quantity */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        try {
+            List<GarmentEntity> missing = jdbcTemplate.query(
+                    "SELECT g.id, g.sizes, g.stock_quantity FROM garments g " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM garment_skus s WHERE s.garment_id = g.id)",
+                    (rs, i) -> {
+                        GarmentEntity g = new GarmentEntity();
+                        g.setId(rs.getLong(1));
+                        g.setSizes(rs.getString(2));
+                        g.setStockQuantity(rs.getInt(3));
+                        return g;
+                    });
+            if (missing.isEmpty()) return;
+            resetStock(missing);
+            logger.info("SKU backfill: {} garments split into per-size stock", missing.size());
+        } catch (Exception e) {
+            logger.error("SKU backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // ── Reads ────────────────────────────────────────────────────────────────
+
+    /** { garmentId: { size: units } } in size-list order — one query for any number of garments */
+    public Map<Long, Map<String, Integer>> availability(Collection<Long> garmentIds) {
+        Map<Long, Map<String, Integer>> result = new LinkedHashMap<>();
+        if (garmentIds.isEmpty()) return result;
+        for (GarmentSkuEntity sku : garmentSkuRepository.findByGarmentIdInOrderByGarmentIdAscIdAsc(garmentIds)) {
+            result.computeIfAbsent(sku.getGarmentId(), k -> new LinkedHashMap<>())
+                  .put(sku.getSize(), sku.getStockQuantity());
+        }
+        return result;
+    }
+
+    // ── Checkout ─────────────────────────────────────────────────────────────
+
+    /** Units of one garment size — an order line or a reservation */
+    public record SkuQuantity(Long garmentId, String size, int quantity) {}
+
+    /** Lock-order key: garment id, then size */
+    private record SkuKey(Long garmentId, String size) implements Comparable<SkuKey> {
+        @Override
+        public int compareTo(SkuKey o) {
+            int c = garmentId.compareTo(o.garmentId);
+            return c != 0 ? c : size.compareTo(o.size);
+        }
+    }
+
+    /**
+     * Sells every line of an order — see {@link #sell(List, List)}.
+     *
+     * @throws OutOfStockException listing every line with fewer units left than ordered (or a size not offered)
+     */
+    public void sell(List<SkuQuantity> lines) {
+        sell(lines, List.of());
+    }
+
+    /**
+     * Sells every line of an order in one batched statement set: each SKU is
+     * decremented with a conditional UPDATE (stock_quantity >= quantity), so
+     * concurrent checkouts can never drive stock negative, and the garment
+     * totals and units_sold follow with a second batch (one row per garment).
+     * Units in held (the buyer's reservation, already taken out of stock)
+     * count towards the lines — only the difference is taken or returned.
+     * Must run inside the caller's transaction — throwing rolls back
+     * everything sold before it.
+     *
+     * Rows are locked in a fixed order — SKUs by (garment id, size), then
+     * garments by id — so two checkouts sharing garments queue behind each
+     * other instead of deadlocking. Callers should sell before inserting rows
+     * that reference garments (order items): their foreign-key checks take
+     * shared locks on the garment rows this method needs exclusively.
+     *
+     * Garment entities already loaded in that transaction are stale afterwards
+     * and must not be saved back.
+     *
+     * @throws OutOfStockException listing every line with fewer units left than ordered (or a size not offered)
+     */
+    public void sell(List<SkuQuantity> lines, List<SkuQuantity> held) {
+        adjust(lines, held, true);
+    }
+
+    /**
+     * Takes units out of stock for a reservation without counting them as
+     * sold; units of the buyer's previous reservation are netted as in
+     * {@link #sell(List, List)}. Same locking and transaction rules as sell.
+     *
+     * @throws OutOfStockException listing every line that cannot be held
+     */
+    public void hold(List<SkuQuantity> lines, List<SkuQuantity> previous) {
+        adjust(lines, previous, false);
+    }
+
+    /** Puts released reservation units back into stock (caller's transaction) */
+    public void restock(List<SkuQuantity> released) {
+        adjust(List.of(), released, false);
+    }
+
+    private void adjust(List<SkuQuantity> take, List<SkuQuantity> giveBack, boolean recordSale) {
+        // { take, giveBack } per SKU, in lock order
+        Map<SkuKey, int[]> bySku = new TreeMap<>();
+        for (SkuQuantity l : take) {
+            bySku.computeIfAbsent(new SkuKey(l.garmentId(), l.size()), k -> new int[2])[0] += l.quantity();
+        }
+        for (SkuQuantity l : giveBack) {
+            bySku.computeIfAbsent(new SkuKey(l.garmentId(), l.size()), k -> new int[2])[1] += l.quantity();
+        }
+
+        List<SkuKey> changed = new ArrayList<>(bySku.size());
+        List<Object[]> skuArgs = new ArrayList<>(bySku.size());
+        Map<Long, int[]> byGarment = new TreeMap<>();   // { stock taken, units sold }
+        for (Map.Entry<SkuKey, int[]> e : bySku.entrySet()) {
+            SkuKey sku = e.getKey();
+            int delta = e.getValue()[0] - e.getValue()[1];
+            if (delta != 0) {
+                changed.add(sku);
+                // a negative delta returns units; its condition always holds
+                skuArgs.add(new Object[]{ delta, sku.garmentId(), sku.size(), delta });
+            }
+            int[] g = byGarment.computeIfAbsent(sku.garmentId(), k -> new int[2]);
+            g[0] += delta;
+            if (recordSale) g[1] += e.getValue()[0];
+        }
+
+        if (!skuArgs.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE garment_skus SET stock_quantity = stock_quantity - ? " +
+                    "WHERE garment_id = ? AND size = ? AND stock_quantity >= ?", skuArgs);
+            List<SkuKey> failed = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                // a returned size that has since been removed simply disappears
+                if (counts[i] == 0 && (int) skuArgs.get(i)[0] > 0) failed.add(changed.get(i));
+            }
+            if (!failed.isEmpty()) throw outOfStock(failed, bySku);
+        }
+
+        List<Object[]> garmentArgs = new ArrayList<>(byGarment.size());
+        byGarment.forEach((garmentId, g) -> {
+            if (g[0] != 0 || g[1] != 0) garmentArgs.add(new Object[]{ g[0], g[1], garmentId });
+        });
+        if (!garmentArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE garments SET stock_quantity = stock_quantity - ?, units_sold = units_sold + ? " +
+                    "WHERE id = ?", garmentArgs);
+        }
+        if (!changed.isEmpty()) eventPublisher.publishEvent(new StockChangedEvent(List.copyOf(byGarment.keySet())));
+    }
+
+    /**
+     * Failed lines left their SKU rows untouched, so current availability is
+     * still accurate; units the buyer already holds count as available to them.
+     */
+    private OutOfStockException outOfStock(List<SkuKey> failed, Map<SkuKey, int[]> bySku) {
+        Set<Long> garmentIds = new HashSet<>();
+        for (SkuKey sku : failed) garmentIds.add(sku.garmentId());
+        Map<Long, Map<String, Integer>> stock = availability(garmentIds);
+
+        List<OutOfStockException.Shortage> shortages = new ArrayList<>(failed.size());
+        for (SkuKey sku : failed) {
+            int[] units = bySku.get(sku);
+            int available = stock.getOrDefault(sku.garmentId(), Map.of()).getOrDefault(sku.size(), 0) + units[1];
+            shortages.add(new OutOfStockException.Shortage(sku.garmentId(), sku.size(), units[0], available));
+        }
+        return new OutOfStockException(shortages);
+    }
+
+    // ── Admin writes (join the caller's transaction if there is one) ────────
+
+    /**
+     * Replaces the SKU rows of each garment with its current size list and
+     * spreads its stock_quantity evenly across them (remainder to the first
+     * sizes). Used when a single stock figure is supplied for the garment.
+     */
+    public void resetStock(List<GarmentEntity> garments) {
+        if (garments.isEmpty()) return;
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (GarmentEntity g : garments) {
+                List<String> sizes = parseSizes(g.getSizes());
+                int total = g.getStockQuantity() != null ? Math.max(0, g.getStockQuantity()) : 0;
+                for (int i = 0; i < sizes.size(); i++) {
+                    int share = total / sizes.size() + (i < total % sizes.size() ? 1 : 0);
+                    rows.add(new Object[]{ g.getId(), sizes.get(i), share });
+                }
+                deleteSizesNotIn(g.getId(), sizes);
+            }
+            upsertStock(rows);
+            List<Long> ids = garments.stream().map(GarmentEntity::getId).toList();
+            refreshTotals(ids);
+            eventPublisher.publishEvent(new StockChangedEvent(ids));
+        });
+    }
+
+    /**
+     * Aligns SKU rows with a changed size list: new sizes start at zero,
+     * dropped sizes are removed, stock of unchanged sizes is kept.
+     *
+     * @return the garment's new total stock
+     */
+    public int syncSizes(GarmentEntity garment) {
+        List<String> sizes = parseSizes(garment.getSizes());
+        List<Object[]> rows = new ArrayList<>(sizes.size());
+        for (String size : sizes) rows.add(new Object[]{ garment.getId(), size });
+        Integer total = transactionTemplate.execute(status -> {
+            deleteSizesNotIn(garment.getId(), sizes);
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT IGNORE INTO garment_skus (garment_id, size, stock_quantity) VALUES (?, ?, 0)", rows);
+            }
+            refreshTotals(List.of(garment.getId()));
+            eventPublisher.publishEvent(new StockChangedEvent(List.of(garment.getId())));
+            return totalStock(garment.getId());
+        });
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Sets absolute stock for some sizes of one garment.
+     *
+     * @return the garment's new total stock
+     * @throws IllegalArgumentException if a size is not offered or a quantity is negative
+     */
+    public int setStock(GarmentEntity garment, Map<String, Integer> stockBySize) {
+        List<String> offered = parseSizes(garment.getSizes());
+        List<Object[]> rows = new ArrayList<>(stockBySize.size());
+        for (Map.Entry<String, Integer> e : stockBySize.entrySet()) {
+            String size = e.getKey() != null ? e.getKey().trim() : "";
+            if (!offered.contains(size)) {
+                throw new IllegalArgumentException("Size " + size + " is not offered for this garment");
+            }
+            if (e.getValue() == null || e.getValue() < 0) {
+                throw new IllegalArgumentException("Stock for size " + size + " must be zero or more");
+            }
+            rows.add(new Object[]{ garment.getId(), size, e.getValue() });
+        }
+        Integer total = transactionTemplate.execute(status -> {
+            upsertStock(rows);
+            refreshTotals(List.of(garment.getId()));
+            eventPublisher.publishEvent(new StockChangedEvent(List.of(garment.getId())));
+            return totalStock(garment.getId());
+        });
+        return total != null ? total : 0;
+    }
+
+    /** Trimmed, de-duplicated sizes from a CSV such as "S, M,L" */
+    public static List<String> parseSizes(String csv) {
+        if (csv == null || csv.isBlank()) return List.of();
+        Set<String> sizes = new LinkedHashSet<>();
+        for (String s : csv.split(",")) {
+            String size = s.trim();
+            if (!size.isEmpty()) sizes.add(size);
+        }
+        return List.copyOf(sizes);
+    }
+
+    private void upsertStock(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO garment_skus (garment_id, size, stock_quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE stock_quantity = VALUES(stock_quantity)", rows);
+    }
+
+    private void deleteSizesNotIn(Long garmentId, List<String> sizes) {
+        if (sizes.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM garment_skus WHERE garment_id = ?", garmentId);
+            return;
+        }
+        List<Object> args = new ArrayList<>(sizes.size() + 1);
+        args.add(garmentId);
+        args.addAll(sizes);
+        jdbcTemplate.update("DELETE FROM garment_skus WHERE garment_id = ? AND size NOT IN (" +
+                String.join(",", Collections.nCopies(sizes.size(), "?")) + ")", args.toArray());
+    }
+
+    private void refreshTotals(List<Long> garmentIds) {
+        if (garmentIds.isEmpty()) return;
+        jdbcTemplate.update("UPDATE garments g SET g.stock_quantity = " +
+                "(SELECT COALESCE(SUM(s.stock_quantity), 0) FROM garment_skus s WHERE s.garment_id = g.id) " +
+                "WHERE g.id IN (" + String.join(",", Collections.nCopies(garmentIds.size(), "?")) + ")",
+                garmentIds.toArray());
+    }
+
+    private int totalStock(Long garmentId) {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM garments WHERE id = ?", Integer.class, garmentId);
+        return total != null ? total : 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.shop.demo.service.inventory;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link SkuInventoryService} whenever garment_skus stock moves —
+ * a sale, a hold or its release, an admin stock write. Listeners that cache
+ * stock (the facet bitmaps) refresh once the surrounding transaction, if any,
+ * has committed.
+ *
+ * @param garmentIds garments whose stock changed
+ */
+public record StockChangedEvent(Collection<Long> garmentIds) {
+}
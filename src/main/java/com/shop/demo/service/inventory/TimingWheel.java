@@ -0,0 +1,72 @@
+package com.shop.demo.service.inventory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel: scheduling is O(1) and each tick only looks at one
+ * slot, however many deadlines are pending. A deadline further away than one
+ * revolution stays in its slot until the tick it belongs to comes round.
+ * Deadlines are rounded up to the next tick, so a key fires up to one tick
+ * late but never early.
+ *
+ * In memory only — the owner re-arms it from its own storage after a restart.
+ * Thread-safe; the lock is only held for the O(1) slot operations.
+ */
+final class TimingWheel<K> {
+
+    private record Entry<K>(K key, long deadlineTick) {}
+
+    private final long tickMillis;
+    private final List<List<Entry<K>>> slots;
+    private final long startMillis;
+    private long currentTick;   // last tick processed
+
+    TimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        this.tickMillis  = tickMillis;
+        this.slots       = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) slots.add(new ArrayList<>());
+        this.startMillis = nowMillis;
+        this.currentTick = 0;
+    }
+
+    /** Fires key once deadline has passed; overdue deadlines fire on the next tick */
+    synchronized void schedule(K key, Instant deadline) {
+        long elapsed = deadline.toEpochMilli() - startMillis;
+        long tick = Math.max(Math.floorDiv(elapsed + tickMillis - 1, tickMillis), currentTick + 1);
+        slots.get(slot(tick)).add(new Entry<>(key, tick));
+    }
+
+    /** Moves the wheel up to nowMillis and returns every key that became due */
+    synchronized List<K> advance(long nowMillis) {
+        long target = (nowMillis - startMillis) / tickMillis;
+        List<K> due = new ArrayList<>();
+        if (target - currentTick >= slots.size()) {
+            // fell behind a full revolution (e.g. a long GC pause) — one sweep over every slot
+            for (List<Entry<K>> slot : slots) collect(slot, target, due);
+        } else {
+            for (long tick = currentTick + 1; tick <= target; tick++) collect(slots.get(slot(tick)), tick, due);
+        }
+        currentTick = Math.max(currentTick, target);
+        return due;
+    }
+
+    synchronized int size() {
+        int size = 0;
+        for (List<Entry<K>> slot : slots) size += slot.size();
+        return size;
+    }
+
+    private static <K> void collect(List<Entry<K>> slot, long upToTick, List<K> due) {
+        slot.removeIf(e -> {
+            if (e.deadlineTick() > upToTick) return false;
+            due.add(e.key());
+            return true;
+        });
+    }
+
+    private int slot(long tick) {
+        return (int) (tick % slots.size());
+    }
+}
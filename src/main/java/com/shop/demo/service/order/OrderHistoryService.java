@@ -0,0 +1,184 @@
+package com.shop.demo.service.order;
+
+import com.shop.demo.database.entity.project.shop.OrderEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Read side of a user's orders, built on plain SQL projections instead of
+ * managed entities.
+ *
+ * The history is keyset-paginated on (created_at, id) — newest first — and
+ * served by the (user_id, created_at) index; item count and thumbnail come
+ * from correlated subqueries evaluated only for the rows of the page, so a
+ * page is one query however many orders the user has.
+ *
+ * Cursors are opaque base64url strings of "createdAtMillis|id", the last row
+ * of the previous page.
+ */
+@Service
+public class OrderHistoryService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT     = 100;
+
+    /** One history row; itemCount is units, thumbnailUrl the image of the first line's garment */
+    public record OrderSummary(Long id,
+                               LocalDateTime createdAt,
+                               BigDecimal totalAmount,
+                               String orderStatus,
+                               String paymentStatus,
+                               int itemCount,
+                               String thumbnailUrl) {
+    }
+
+    public record OrderPage(List<OrderSummary> items, String nextCursor) {}
+
+    /** An order line with its garment's current name and image (null if the garment was deleted) */
+    public record OrderLine(Long id,
+                            Long orderId,
+                            Long garmentId,
+                            String garmentName,
+                            String imageUrl,
+                            String size,
+                            int quantity,
+                            BigDecimal unitPrice) {
+    }
+
+    public record OrderDetail(OrderEntity order, List<OrderLine> items) {}
+
+    private static final String SUMMARY_SQL =
+            "SELECT o.id, o.created_at, o.total_amount, o.order_status, o.payment_status, " +
+            "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.order_id = o.id) AS item_count, " +
+            "(SELECT g.image_url FROM order_items oi JOIN garments g ON g.id = oi.garment_id " +
+            " WHERE oi.order_id = o.id ORDER BY oi.id LIMIT 1) AS thumbnail_url " +
+            "FROM orders o WHERE o.user_id = ?";
+
+    private static final String DETAIL_SQL =
+            "SELECT o.id, o.user_id, o.total_amount, o.payment_status, o.payment_method, o.payment_ref, " +
+            "o.shipping_name, o.shipping_address, o.shipping_city, o.shipping_pincode, o.shipping_phone, " +
+            "o.order_status, o.tracking_awb, o.shiprocket_order_id, o.created_at, " +
+            "oi.id AS item_id, oi.garment_id, oi.size, oi.quantity, oi.unit_price, g.name, g.image_url " +
+            "FROM orders o " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+            "LEFT JOIN garments g ON g.id = oi.garment_id " +
+            "WHERE o.id = ? ORDER BY oi.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderHistoryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @throws IllegalArgumentException on an invalid cursor
+     */
+    public OrderPage history(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        StringBuilder sql = new StringBuilder(SUMMARY_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+
+        if (cursor != null && !cursor.isBlank()) {
+            long[] key = decodeCursor(cursor);
+            Timestamp createdAt = new Timestamp(key[0]);
+            sql.append(" AND (o.created_at < ? OR (o.created_at = ? AND o.id < ?))");
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(key[1]);
+        }
+        sql.append(" ORDER BY o.created_at DESC, o.id DESC LIMIT ?");
+        args.add(pageSize + 1);   // one extra row tells us whether a next page exists
+
+        List<OrderSummary> rows = jdbcTemplate.query(sql.toString(), (rs, i) -> new OrderSummary(
+                rs.getLong("id"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getBigDecimal("total_amount"),
+                rs.getString("order_status"),
+                rs.getString("payment_status"),
+                rs.getInt("item_count"),
+                rs.getString("thumbnail_url")), args.toArray());
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String next = null;
+        if (hasMore) {
+            OrderSummary last = page.get(page.size() - 1);
+            next = encodeCursor(Timestamp.valueOf(last.createdAt()).getTime(), last.id());
+        }
+        return new OrderPage(page, next);
+    }
+
+    /** The order with its lines and garment names, or null if there is no such order */
+    public OrderDetail detail(Long orderId) {
+        OrderEntity[] order = new OrderEntity[1];
+        List<OrderLine> items = new ArrayList<>();
+        jdbcTemplate.query(DETAIL_SQL, rs -> {
+            if (order[0] == null) order[0] = mapOrder(rs);
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                items.add(new OrderLine(
+                        itemId,
+                        order[0].getId(),
+                        rs.getLong("garment_id"),
+                        rs.getString("name"),
+                        rs.getString("image_url"),
+                        rs.getString("size"),
+                        rs.getInt("quantity"),
+                        rs.getBigDecimal("unit_price")));
+            }
+        }, orderId);
+        return order[0] != null ? new OrderDetail(order[0], items) : null;
+    }
+
+    /** Detached entity used purely as the response shape — never passed to a repository */
+    private static OrderEntity mapOrder(ResultSet rs) throws SQLException {
+        OrderEntity o = new OrderEntity();
+        o.setId(rs.getLong("id"));
+        o.setUserId(rs.getLong("user_id"));
+        o.setTotalAmount(rs.getBigDecimal("total_amount"));
+        String paymentStatus = rs.getString("payment_status");
+        o.setPaymentStatus(paymentStatus != null ? OrderEntity.PaymentStatus.valueOf(paymentStatus) : null);
+        o.setPaymentMethod(rs.getString("payment_method"));
+        o.setPaymentRef(rs.getString("payment_ref"));
+        o.setShippingName(rs.getString("shipping_name"));
+        o.setShippingAddress(rs.getString("shipping_address"));
+        o.setShippingCity(rs.getString("shipping_city"));
+        o.setShippingPincode(rs.getString("shipping_pincode"));
+        o.setShippingPhone(rs.getString("shipping_phone"));
+        String orderStatus = rs.getString("order_status");
+        o.setOrderStatus(orderStatus != null ? OrderEntity.OrderStatus.valueOf(orderStatus) : null);
+        o.setTrackingAwb(rs.getString("tracking_awb"));
+        o.setShiprocketOrderId(rs.getString("shiprocket_order_id"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        o.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        return o;
+    }
+
+    private static String encodeCursor(long createdAtMillis, long id) {
+        String raw = createdAtMillis + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid cursor");
+            return new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]) };
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and bad base64 both land here
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
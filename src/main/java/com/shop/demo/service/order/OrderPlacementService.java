@@ -0,0 +1,174 @@
+package com.shop.demo.service.order;
+
+import com.shop.demo.database.entity.project.shop.CartItemEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.entity.project.shop.OrderEntity;
+import com.shop.demo.database.entity.project.shop.OrderItemEntity;
+import com.shop.demo.database.repository.projectRepository.shop.CartItemRepository;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.database.repository.projectRepository.shop.OrderItemRepository;
+import com.shop.demo.database.repository.projectRepository.shop.OrderRepository;
+import com.shop.demo.service.analytics.SalesAggregateService;
+import com.shop.demo.service.cart.CartService;
+import com.shop.demo.service.idempotency.IdempotencyService;
+import com.shop.demo.service.inventory.InventoryReservationService;
+import com.shop.demo.service.inventory.OutOfStockException;
+import com.shop.demo.service.inventory.SkuInventoryService;
+import com.shop.demo.service.inventory.SkuInventoryService.SkuQuantity;
+import com.shop.demo.service.shiprocket.ShipmentDispatcher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Turns a user's cart into an order — shared by the mock checkout and the
+ * Razorpay verify step. Everything happens in one transaction with a fixed
+ * number of round trips whatever the cart size: one garment lookup, one batch
+ * of stock decrements (plus one for garment totals), a single cart DELETE,
+ * for paid online orders one outbox row for the shipment (see
+ * {@link ShipmentDispatcher}), one batched upsert of the sales aggregates
+ * (see {@link SalesAggregateService}), and the order with its lines as one
+ * batched insert when the transaction flushes.
+ *
+ * Prices are taken from the garments at placement time, never from the client.
+ */
+@Service
+public class OrderPlacementService {
+
+    /**
+     * Payment and shipping details recorded on the order; createShipment
+     * queues a Shiprocket shipment in the same transaction. holdReference is
+     * the Razorpay order id being paid — only its stock hold counts towards
+     * the order (null: whatever hold the user has). idempotencyKey, if the
+     * request carried one, gets the order id in the same transaction.
+     */
+    public record Checkout(String paymentMethod,
+                           String paymentRef,
+                           String shippingName,
+                           String shippingAddress,
+                           String shippingCity,
+                           String shippingPincode,
+                           String shippingPhone,
+                           boolean createShipment,
+                           String holdReference,
+                           IdempotencyService.Key idempotencyKey) {
+    }
+
+    /** The committed order and its lines */
+    public record PlacedOrder(OrderEntity order, List<OrderItemEntity> items) {}
+
+    private record Placement(PlacedOrder placed, SalesAggregateService.Delta sales) {}
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final CartItemRepository cartItemRepository;
+    private final GarmentRepository garmentRepository;
+    private final SkuInventoryService skuInventoryService;
+    private final InventoryReservationService inventoryReservationService;
+    private final ShipmentDispatcher shipmentDispatcher;
+    private final CartService cartService;
+    private final SalesAggregateService salesAggregateService;
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderPlacementService(OrderRepository orderRepository,
+                                 OrderItemRepository orderItemRepository,
+                                 CartItemRepository cartItemRepository,
+                                 GarmentRepository garmentRepository,
+                                 SkuInventoryService skuInventoryService,
+                                 InventoryReservationService inventoryReservationService,
+                                 ShipmentDispatcher shipmentDispatcher,
+                                 CartService cartService,
+                                 SalesAggregateService salesAggregateService,
+                                 IdempotencyService idempotencyService,
+                                 TransactionTemplate transactionTemplate) {
+        this.orderRepository             = orderRepository;
+        this.orderItemRepository         = orderItemRepository;
+        this.cartItemRepository          = cartItemRepository;
+        this.garmentRepository           = garmentRepository;
+        this.skuInventoryService         = skuInventoryService;
+        this.inventoryReservationService = inventoryReservationService;
+        this.shipmentDispatcher          = shipmentDispatcher;
+        this.cartService                 = cartService;
+        this.salesAggregateService       = salesAggregateService;
+        this.idempotencyService          = idempotencyService;
+        this.transactionTemplate         = transactionTemplate;
+    }
+
+    /**
+     * Places a PAID order for cartItems (the user's non-empty cart), takes the
+     * stock — confirming the user's reservation, if any — and clears the cart.
+     * Nothing is written if any step fails.
+     *
+     * @throws OutOfStockException listing every line whose size has run out or whose garment no longer exists
+     * @throws IllegalArgumentException if a cart line has no positive quantity
+     */
+    public PlacedOrder place(Long userId, List<CartItemEntity> cartItems, Checkout checkout) {
+        Placement placement = transactionTemplate.execute(status -> {
+            Set<Long> garmentIds = new HashSet<>();
+            for (CartItemEntity ci : cartItems) garmentIds.add(ci.getGarmentId());
+            Map<Long, GarmentEntity> garments = new HashMap<>();
+            for (GarmentEntity g : garmentRepository.findAllById(garmentIds)) garments.put(g.getId(), g);
+
+            BigDecimal total = BigDecimal.ZERO;
+            List<OrderItemEntity> items = new ArrayList<>(cartItems.size());
+            List<SkuQuantity> lines = new ArrayList<>(cartItems.size());
+            for (CartItemEntity ci : cartItems) {
+                GarmentEntity g = garments.get(ci.getGarmentId());
+                if (ci.getQuantity() == null || ci.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Invalid quantity for garment " + ci.getGarmentId());
+                }
+                if (g == null) {
+                    throw new OutOfStockException(List.of(new OutOfStockException.Shortage(
+                            ci.getGarmentId(), ci.getSize(), ci.getQuantity(), 0)));
+                }
+                BigDecimal price = BigDecimal.valueOf(g.getBasePrice() != null ? g.getBasePrice() : 0);
+                total = total.add(price.multiply(BigDecimal.valueOf(ci.getQuantity())));
+
+                OrderItemEntity oi = new OrderItemEntity();
+                oi.setGarmentId(ci.getGarmentId());
+                oi.setSize(ci.getSize());
+                oi.setQuantity(ci.getQuantity());
+                oi.setUnitPrice(price);
+                items.add(oi);
+                lines.add(new SkuQuantity(ci.getGarmentId(), ci.getSize(), ci.getQuantity()));
+            }
+
+            // units the user holds since create-order count towards the order; only the difference moves.
+            // Before any insert that references garments — see SkuInventoryService.sell on lock order
+            List<SkuQuantity> held = checkout.holdReference() != null
+                    ? inventoryReservationService.claim(userId, checkout.holdReference())
+                    : inventoryReservationService.claim(userId);
+            skuInventoryService.sell(lines, held);
+
+            OrderEntity order = new OrderEntity();
+            order.setUserId(userId);
+            order.setTotalAmount(total);
+            order.setPaymentStatus(OrderEntity.PaymentStatus.PAID);
+            order.setPaymentMethod(checkout.paymentMethod());
+            order.setPaymentRef(checkout.paymentRef());
+            order.setShippingName(checkout.shippingName());
+            order.setShippingAddress(checkout.shippingAddress());
+            order.setShippingCity(checkout.shippingCity());
+            order.setShippingPincode(checkout.shippingPincode());
+            order.setShippingPhone(checkout.shippingPhone());
+            order.setOrderStatus(OrderEntity.OrderStatus.PLACED);
+            OrderEntity saved = orderRepository.save(order);
+
+            // ids come from a pooled block, so the order and its lines go out as one JDBC batch at flush
+            for (OrderItemEntity oi : items) oi.setOrderId(saved.getId());
+            orderItemRepository.saveAll(items);
+
+            cartItemRepository.deleteByUserId(userId);
+            if (checkout.createShipment()) shipmentDispatcher.enqueue(saved.getId());
+            if (checkout.idempotencyKey() != null) idempotencyService.attachOrder(checkout.idempotencyKey(), saved.getId());
+            SalesAggregateService.Delta sales = salesAggregateService.record(saved.getId(), items, garments);
+            return new Placement(new PlacedOrder(saved, items), sales);
+        });
+        cartService.evict(userId);   // the cart rows went with the commit
+        salesAggregateService.apply(placement.sales());
+        return placement.placed();
+    }
+}
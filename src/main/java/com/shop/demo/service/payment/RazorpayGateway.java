@@ -0,0 +1,65 @@
+package com.shop.demo.service.payment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shop.demo.service.http.OutboundClient;
+import com.shop.demo.service.http.OutboundHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Razorpay Orders API over the shared pooled client. Replaces a
+ * RazorpayClient per request — the SDK builds a fresh HTTP client each time
+ * it is constructed, so every checkout paid for a new TCP + TLS handshake.
+ */
+@Service
+public class RazorpayGateway {
+
+    /** What checkout needs from a created Razorpay order */
+    public record RazorpayOrder(String id, long amount, String currency) {}
+
+    private final OutboundClient http;
+    private final String ordersUrl;
+    private final String keyId;
+    private final String keySecret;
+
+    public RazorpayGateway(OutboundHttpClients outboundHttpClients,
+                           @Value("${razorpay.key-id}") String keyId,
+                           @Value("${razorpay.key-secret}") String keySecret,
+                           @Value("${razorpay.api-base-url:https://api.razorpay.com/v1}") String apiBaseUrl) {
+        this.http      = outboundHttpClients.razorpay();
+        this.ordersUrl = apiBaseUrl + "/orders";
+        this.keyId     = keyId;
+        this.keySecret = keySecret;
+    }
+
+    /**
+     * Creates an order for amountInPaise (INR).
+     *
+     * @throws com.shop.demo.service.http.OutboundCallRejectedException if Razorpay is unavailable or saturated
+     * @throws org.springframework.web.client.RestClientException if the call fails or Razorpay rejects it
+     */
+    public RazorpayOrder createOrder(long amountInPaise, String receipt) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("amount",   amountInPaise);
+        body.put("currency", "INR");
+        body.put("receipt",  receipt);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBasicAuth(keyId, keySecret);
+
+        JsonNode json = http.call("create-order",
+                rt -> rt.postForObject(ordersUrl, new HttpEntity<>(body, headers), JsonNode.class));
+        if (json == null || !json.hasNonNull("id")) {
+            throw new IllegalStateException("Razorpay returned no order id");
+        }
+        return new RazorpayOrder(json.get("id").asText(), json.path("amount").asLong(amountInPaise),
+                json.path("currency").asText("INR"));
+    }
+}
@@ -0,0 +1,17 @@
+package com.shop.demo.service.s3;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Where uploaded product images go. {@link S3Service} in normal runs; the
+ * loadtest profile swaps in a local-directory stand-in.
+ */
+public interface ImageStorage {
+
+    /**
+     * Stores the file and returns the URL it can be fetched from.
+     */
+    String uploadFile(MultipartFile file) throws IOException;
+}
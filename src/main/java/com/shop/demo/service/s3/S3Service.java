@@ -14,7 +14,7 @@ import java.util.UUID;
 
 @Service
 @ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true")
-public class S3Service {
+public class S3Service implements ImageStorage {
 
     private final S3Client s3Client;
 
@@ -34,6 +34,7 @@ public class S3Service {
      * @param file the multipart file to upload
      * @return the public S3 URL of the uploaded object
      */
+    @Override
     public String uploadFile(MultipartFile file) throws IOException {
         String originalName = file.getOriginalFilename() != null
                 ? file.getOriginalFilename().replaceAll("[^a-zA-Z0-9._-]", "_")
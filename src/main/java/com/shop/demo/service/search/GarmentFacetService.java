@@ -0,0 +1,302 @@
+package com.shop.demo.service.search;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.catalog.CatalogRebuiltEvent;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import com.shop.demo.service.inventory.StockChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Facet counts for the shop filters (/server/garments/facets) from in-memory
+ * bitmap indexes: every active garment gets an ordinal, and every facet value
+ * owns a bitmap of the ordinals that carry it. A filter combination is a few
+ * bitmap ANDs, and each facet is counted against all filters except its own so
+ * the UI can offer alternatives within the selected facet.
+ *
+ * The index is immutable. Its catalog bitmaps are rebuilt from the catalog
+ * snapshot whenever it changes (admin mutations). The size and in-stock
+ * bitmaps come from garment_skus, as the listing filters do, and are re-read
+ * on the first count after any stock change (sale, hold, release, restock).
+ * With the in-stock filter on, a size matches only garments that have that
+ * size in stock.
+ */
+@Service
+public class GarmentFacetService {
+
+    /** Fixed price bands — key is the API value, bounds in rupees [min, max) */
+    public enum PriceBand {
+        UNDER_500("under-500", 0, 500),
+        FROM_500("500-999", 500, 1000),
+        FROM_1000("1000-1499", 1000, 1500),
+        FROM_1500("1500-1999", 1500, 2000),
+        FROM_2000("2000-plus", 2000, Integer.MAX_VALUE);
+
+        public final String key;
+        final int min;
+        final int max;
+
+        PriceBand(String key, int min, int max) {
+            this.key = key;
+            this.min = min;
+            this.max = max;
+        }
+
+        static PriceBand of(int price) {
+            for (PriceBand band : values()) {
+                if (price >= band.min && price < band.max) return band;
+            }
+            return UNDER_500;   // negative prices are not expected
+        }
+
+        /** @throws IllegalArgumentException for an unknown key */
+        public static PriceBand fromParam(String key) {
+            for (PriceBand band : values()) {
+                if (band.key.equalsIgnoreCase(key.trim())) return band;
+            }
+            throw new IllegalArgumentException("Unknown price band: " + key);
+        }
+    }
+
+    /** Selected facet values; null / false = facet not filtered */
+    public record FacetFilter(Long categoryId,
+                              String garmentType,
+                              String color,
+                              String size,
+                              String priceBand,
+                              boolean inStockOnly) {
+    }
+
+    /** Matching garments per facet value, given every other selected facet */
+    public record FacetCounts(int total,
+                              Map<String, Integer> garmentType,
+                              Map<Long, Integer> category,
+                              Map<String, Integer> color,
+                              Map<String, Integer> size,
+                              Map<String, Integer> priceBand,
+                              int inStock) {
+    }
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationLogger logger;
+
+    private final AtomicReference<FacetIndex> index = new AtomicReference<>();
+    private final AtomicLong stockVersion = new AtomicLong();
+
+    public GarmentFacetService(CatalogSnapshotService catalogSnapshotService,
+                               JdbcTemplate jdbcTemplate,
+                               ApplicationLogger logger) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.jdbcTemplate           = jdbcTemplate;
+        this.logger                 = logger;
+    }
+
+    @EventListener
+    public void onCatalogRebuilt(CatalogRebuiltEvent event) {
+        publish(build(event.snapshot(), stockVersion.get()));
+    }
+
+    /** Marks the stock bitmaps stale — committed, so the next rebuild reads the change */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        stockVersion.incrementAndGet();
+    }
+
+    /**
+     * @throws IllegalArgumentException on an unknown price band
+     */
+    public FacetCounts count(FacetFilter filter) {
+        FacetIndex idx = current();
+
+        // selection per facet — null when that facet is not filtered
+        BitSet byType        = select(idx.garmentType, filter.garmentType(), idx.size);
+        BitSet byCategory    = filter.categoryId() == null ? null
+                             : idx.category.getOrDefault(filter.categoryId(), new BitSet());
+        BitSet byColor       = select(idx.color, filter.color(), idx.size);
+        BitSet bySizeInStock = select(idx.sizesInStock, filter.size(), idx.size);
+        BitSet bySize        = filter.inStockOnly() ? bySizeInStock : select(idx.sizes, filter.size(), idx.size);
+        BitSet byPrice       = filter.priceBand() == null || filter.priceBand().isBlank() ? null
+                             : idx.priceBand.getOrDefault(PriceBand.fromParam(filter.priceBand()).key, new BitSet());
+        BitSet byStock       = filter.inStockOnly() ? idx.inStock : null;
+
+        BitSet[] selected = { byType, byCategory, byColor, bySize, byPrice, byStock };
+        // the in-stock count asks "how many would match with the filter on", so a selected size must be in stock
+        BitSet[] ifInStock = { byType, byCategory, byColor, bySizeInStock, byPrice, null };
+
+        return new FacetCounts(
+                intersect(idx.all, selected, -1).cardinality(),
+                countValues(idx.garmentType, intersect(idx.all, selected, 0)),
+                countValues(idx.category,    intersect(idx.all, selected, 1)),
+                countValues(idx.color,       intersect(idx.all, selected, 2)),
+                countValues(filter.inStockOnly() ? idx.sizesInStock : idx.sizes, intersect(idx.all, selected, 3)),
+                countValues(idx.priceBand,   intersect(idx.all, selected, 4)),
+                and(intersect(idx.all, ifInStock, -1), idx.inStock).cardinality());
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // BITMAP OPERATIONS
+    // ─────────────────────────────────────────────────────────
+
+    /** AND of all selections except the one at index skip (-1 = none skipped) */
+    private static BitSet intersect(BitSet all, BitSet[] selected, int skip) {
+        BitSet result = (BitSet) all.clone();
+        for (int i = 0; i < selected.length; i++) {
+            if (i != skip && selected[i] != null) result.and(selected[i]);
+        }
+        return result;
+    }
+
+    private static <K> Map<K, Integer> countValues(Map<K, BitSet> facet, BitSet base) {
+        Map<K, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<K, BitSet> e : facet.entrySet()) {
+            counts.put(e.getKey(), and(base, e.getValue()).cardinality());
+        }
+        return counts;
+    }
+
+    private static BitSet and(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result;
+    }
+
+    private static BitSet select(Map<String, BitSet> facet, String value, int size) {
+        if (value == null || value.isBlank()) return null;
+        BitSet bits = facet.get(value.trim());
+        return bits != null ? bits : new BitSet(size);
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // INDEX BUILD
+    // ─────────────────────────────────────────────────────────
+
+    private FacetIndex current() {
+        CatalogSnapshot snapshot = catalogSnapshotService.get();
+        long stock = stockVersion.get();
+        FacetIndex idx = index.get();
+        if (idx != null && idx.version >= snapshot.getVersion()) {
+            if (idx.stockVersion >= stock) return idx;
+            return publish(withStock(idx, stock));   // catalog unchanged — only re-read stock
+        }
+        return publish(build(snapshot, stock));
+    }
+
+    /** Keeps whichever index is newer — catalog first, then stock */
+    private FacetIndex publish(FacetIndex built) {
+        index.accumulateAndGet(built, (prev, next) -> prev != null
+                && (prev.version > next.version || prev.version == next.version && prev.stockVersion >= next.stockVersion)
+                ? prev : next);
+        return built;
+    }
+
+    /**
+     * stock is the stock version read before garment_skus is queried, so a
+     * change committed during the query marks this index stale again.
+     */
+    private FacetIndex build(CatalogSnapshot snapshot, long stock) {
+        long start = System.nanoTime();
+        List<GarmentEntity> garments = snapshot.getActiveGarments();
+        FacetIndex idx = new FacetIndex(snapshot.getVersion(), stock, garments.size());
+
+        for (CategoryEntity c : snapshot.getActiveCategories()) idx.category.put(c.getId(), new BitSet());
+        for (PriceBand band : PriceBand.values()) idx.priceBand.put(band.key, new BitSet());
+
+        for (int ord = 0; ord < garments.size(); ord++) {
+            GarmentEntity g = garments.get(ord);
+            idx.ordinal.put(g.getId(), ord);
+            idx.all.set(ord);
+            mark(idx.garmentType, g.getGarmentType(), ord);
+            mark(idx.color, g.getBaseColor(), ord);
+            for (CategoryEntity c : snapshot.getCategoryPath(g.getCategoryId())) {
+                idx.category.get(c.getId()).set(ord);
+            }
+            idx.priceBand.get(PriceBand.of(g.getBasePrice() != null ? g.getBasePrice() : 0).key).set(ord);
+        }
+        markStock(idx);
+        logger.debug("Facet index built: {} garments in {} µs",
+                garments.size(), (System.nanoTime() - start) / 1_000);
+        return idx;
+    }
+
+    /** Same catalog bitmaps (and ordinals), stock bitmaps re-read */
+    private FacetIndex withStock(FacetIndex catalog, long stock) {
+        FacetIndex idx = new FacetIndex(catalog, stock);
+        markStock(idx);
+        return idx;
+    }
+
+    /** Size and in-stock bitmaps from garment_skus — one scan, SKUs of inactive garments skipped */
+    private void markStock(FacetIndex idx) {
+        jdbcTemplate.query("SELECT garment_id, size, stock_quantity FROM garment_skus ORDER BY garment_id, id", rs -> {
+            Integer ord = idx.ordinal.get(rs.getLong(1));
+            if (ord == null) return;
+            String size = rs.getString(2);
+            if (size == null || size.isBlank()) return;
+            mark(idx.sizes, size, ord);
+            // same keys, in the same order, as sizes — a sold-out size still shows with 0
+            BitSet withStock = idx.sizesInStock.computeIfAbsent(size.trim(), k -> new BitSet());
+            if (rs.getInt(3) > 0) {
+                withStock.set(ord);
+                idx.inStock.set(ord);
+            }
+        });
+    }
+
+    private static void mark(Map<String, BitSet> facet, String value, int ord) {
+        if (value == null || value.isBlank()) return;
+        facet.computeIfAbsent(value.trim(), k -> new BitSet()).set(ord);
+    }
+
+    /** Immutable once built and published */
+    private static final class FacetIndex {
+        final long version;
+        final long stockVersion;
+        final int size;
+        final BitSet all;
+        // case-insensitive keys; the first spelling seen is the one reported
+        final Map<String, BitSet> garmentType;
+        final Map<String, BitSet> color;
+        final Map<Long, BitSet> category;
+        final Map<String, BitSet> priceBand;
+        final Map<Long, Integer> ordinal;    // garment id → ordinal
+        // from garment_skus: sizes offered, sizes with stock, garments with any stock
+        final Map<String, BitSet> sizes        = new LinkedHashMap<>();
+        final Map<String, BitSet> sizesInStock = new LinkedHashMap<>();
+        final BitSet inStock                   = new BitSet();
+
+        FacetIndex(long version, long stockVersion, int size) {
+            this.version      = version;
+            this.stockVersion = stockVersion;
+            this.size         = size;
+            this.all          = new BitSet(size);
+            this.garmentType  = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            this.color        = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            this.category     = new LinkedHashMap<>();
+            this.priceBand    = new LinkedHashMap<>();
+            this.ordinal      = new HashMap<>(size * 2);
+        }
+
+        /** Shares the catalog bitmaps of catalog, which are never modified after publishing */
+        FacetIndex(FacetIndex catalog, long stockVersion) {
+            this.version      = catalog.version;
+            this.stockVersion = stockVersion;
+            this.size         = catalog.size;
+            this.all          = catalog.all;
+            this.garmentType  = catalog.garmentType;
+            this.color        = catalog.color;
+            this.category     = catalog.category;
+            this.priceBand    = catalog.priceBand;
+            this.ordinal      = catalog.ordinal;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.shop.demo.service.search;
+
+import com.shop.demo.database.entity.project.shop.CategoryEntity;
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.catalog.CatalogChangedEvent;
+import com.shop.demo.service.catalog.CatalogRebuiltEvent;
+import com.shop.demo.service.catalog.CatalogSnapshot;
+import com.shop.demo.service.catalog.CatalogSnapshotService;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over the active catalog, powering
+ * /server/garments/search without a round trip to MySQL.
+ *
+ * Documents are built from garment name, description, fabric, colour, type,
+ * garmentType and the names of the garment's category path. Every query term
+ * must match (AND), either exactly or as a prefix; hits are ranked with BM25
+ * using field-weighted term frequencies.
+ *
+ * The index follows the catalog snapshot: a single-garment change re-indexes
+ * just that garment, anything else (bulk import, category rename) rebuilds.
+ */
+@Service
+public class GarmentSearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT     = 100;
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B  = 0.75;
+
+    // field weights applied to term frequency
+    private static final int W_NAME     = 3;
+    private static final int W_KEYWORD  = 2;   // colour, type, garmentType, category names
+    private static final int W_TEXT     = 1;   // description, fabric
+
+    private static final double PREFIX_PENALTY   = 0.8;
+    private static final int    MAX_PREFIX_TERMS = 64;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "for", "with", "of", "in", "on", "to", "by", "or");
+
+    public record SearchResult(String query, int total, List<GarmentEntity> items) {
+    }
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ApplicationLogger logger;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ── index state (guarded by lock) ─────────────────────────
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Map<String, Integer>> documents    = new HashMap<>();
+    private final Map<Long, Integer> docLengths                = new HashMap<>();
+    private long totalLength;
+    private long indexedVersion;   // snapshot version the index reflects; 0 = never built
+
+    public GarmentSearchService(CatalogSnapshotService catalogSnapshotService,
+                                ApplicationLogger logger) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.logger                 = logger;
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // QUERY
+    // ─────────────────────────────────────────────────────────
+
+    public SearchResult search(String query, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return new SearchResult(query, 0, List.of());
+
+        CatalogSnapshot snapshot = catalogSnapshotService.get();
+        ensureBuilt(snapshot);
+
+        Map<Long, Double> scores;
+        lock.readLock().lock();
+        try {
+            scores = score(terms);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey()));
+
+        List<GarmentEntity> items = new ArrayList<>(Math.min(max, ranked.size()));
+        for (Map.Entry<Long, Double> e : ranked) {
+            if (items.size() == max) break;
+            GarmentEntity g = snapshot.getGarment(e.getKey());
+            if (g != null) items.add(g);
+        }
+        return new SearchResult(query, ranked.size(), items);
+    }
+
+    /** Caller holds the read lock */
+    private Map<Long, Double> score(List<String> terms) {
+        int docCount = documents.size();
+        if (docCount == 0) return Map.of();
+        double avgLength = (double) totalLength / docCount;
+
+        Map<Long, Double> scores = null;
+        for (String term : terms) {
+            Map<Long, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> match : expand(term)) {
+                double boost = match.getKey().equals(term) ? 1.0 : PREFIX_PENALTY;
+                Map<Long, Integer> docs = match.getValue();
+                double idf = Math.log(1 + (docCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                for (Map.Entry<Long, Integer> posting : docs.entrySet()) {
+                    int tf = posting.getValue();
+                    int docLength = docLengths.get(posting.getKey());
+                    double norm = tf + K1 * (1 - B + B * docLength / avgLength);
+                    double s = boost * idf * (tf * (K1 + 1)) / norm;
+                    termScores.merge(posting.getKey(), s, Math::max);
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // AND semantics — keep only documents matching every term so far
+                Map<Long, Double> combined = new HashMap<>();
+                for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                    Double s = termScores.get(e.getKey());
+                    if (s != null) combined.put(e.getKey(), e.getValue() + s);
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) return scores;
+        }
+        return scores;
+    }
+
+    /** Exact term first, then up to MAX_PREFIX_TERMS terms that start with it */
+    private List<Map.Entry<String, Map<Long, Integer>>> expand(String term) {
+        List<Map.Entry<String, Map<Long, Integer>>> out = new ArrayList<>();
+        Map<Long, Integer> exact = postings.get(term);
+        if (exact != null) out.add(Map.entry(term, exact));
+        if (term.length() < 2) return out;
+
+        for (Map.Entry<String, Map<Long, Integer>> e
+                : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+            if (out.size() >= MAX_PREFIX_TERMS) break;
+            out.add(e);
+        }
+        return out;
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // INDEX MAINTENANCE
+    // ─────────────────────────────────────────────────────────
+
+    @EventListener
+    public void onCatalogRebuilt(CatalogRebuiltEvent event) {
+        CatalogChangedEvent cause = event.cause();
+        CatalogSnapshot snapshot = event.snapshot();
+
+        lock.writeLock().lock();
+        try {
+            if (indexedVersion != 0 && cause != null
+                    && "garment".equals(cause.source()) && cause.entityId() != null) {
+                removeDocument(cause.entityId());
+                GarmentEntity g = snapshot.getGarment(cause.entityId());
+                if (g != null) addDocument(g, snapshot);   // null → deactivated or deleted
+                indexedVersion = snapshot.getVersion();
+                logger.debug("Search index: re-indexed garment {}", cause.entityId());
+            } else {
+                rebuildLocked(snapshot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureBuilt(CatalogSnapshot snapshot) {
+        lock.readLock().lock();
+        try {
+            if (indexedVersion != 0) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (indexedVersion == 0) rebuildLocked(snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuildLocked(CatalogSnapshot snapshot) {
+        long start = System.nanoTime();
+        postings.clear();
+        documents.clear();
+        docLengths.clear();
+        totalLength = 0;
+        for (GarmentEntity g : snapshot.getActiveGarments()) addDocument(g, snapshot);
+        indexedVersion = snapshot.getVersion();
+        logger.info("Search index built: {} garments, {} terms in {} ms",
+                documents.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void addDocument(GarmentEntity g, CatalogSnapshot snapshot) {
+        Map<String, Integer> tf = new HashMap<>();
+        addField(tf, g.getName(),              W_NAME);
+        addField(tf, g.getBaseColor(),         W_KEYWORD);
+        addField(tf, g.getType(),              W_KEYWORD);
+        addField(tf, g.getGarmentType(),       W_KEYWORD);
+        for (CategoryEntity c : snapshot.getCategoryPath(g.getCategoryId())) {
+            addField(tf, c.getName(), W_KEYWORD);
+        }
+        addField(tf, g.getDescription(),       W_TEXT);
+        addField(tf, g.getFabricDescription(), W_TEXT);
+        if (tf.isEmpty()) return;
+
+        int length = 0;
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(g.getId(), e.getValue());
+            length += e.getValue();
+        }
+        documents.put(g.getId(), tf);
+        docLengths.put(g.getId(), length);
+        totalLength += length;
+    }
+
+    private void removeDocument(Long garmentId) {
+        Map<String, Integer> tf = documents.remove(garmentId);
+        if (tf == null) return;
+        for (String term : tf.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(garmentId);
+                if (docs.isEmpty()) postings.remove(term);
+            }
+        }
+        totalLength -= docLengths.remove(garmentId);
+    }
+
+    private static void addField(Map<String, Integer> tf, String text, int weight) {
+        for (String term : tokenize(text)) tf.merge(term, weight, Integer::sum);
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // TOKENIZER — shared by indexing and querying
+    // ─────────────────────────────────────────────────────────
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char ch = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                cur.append(ch);
+            } else if (cur.length() > 0) {
+                String token = normalize(cur.toString());
+                if (!STOP_WORDS.contains(token)) out.add(token);
+                cur.setLength(0);
+            }
+        }
+        return out;
+    }
+
+    /** Minimal plural folding so "tees" finds "tee" and "jeans" finds "jean" */
+    private static String normalize(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
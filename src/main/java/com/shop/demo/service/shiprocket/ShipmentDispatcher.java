@@ -0,0 +1,247 @@
+package com.shop.demo.service.shiprocket;
+
+import com.shop.demo.database.entity.project.shop.GarmentEntity;
+import com.shop.demo.database.entity.project.shop.OrderEntity;
+import com.shop.demo.database.entity.project.shop.OrderItemEntity;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.database.repository.projectRepository.shop.OrderItemRepository;
+import com.shop.demo.database.repository.projectRepository.shop.OrderRepository;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates Shiprocket shipments off the request path (transactional outbox).
+ * Order placement writes a 'shipment.create' row into outbox_events in the
+ * same transaction as the order, so a committed order always gets a
+ * shipment attempt and a rolled-back one never does.
+ *
+ * One poller thread claims due events in batches — orders, items and
+ * garment names for the whole batch are loaded with three queries — and
+ * hands the Shiprocket calls to a small fixed worker pool. Results are
+ * written back in one batch: tracking_awb / shiprocket_order_id on the
+ * order, DONE on the event. Failures are retried with exponential backoff
+ * until {@link #MAX_ATTEMPTS}.
+ *
+ * A claim is a lease (next_attempt_at pushed past the call timeout), so an
+ * event claimed by a process that dies is simply picked up again later.
+ * While Shiprocket is not configured events stay PENDING.
+ */
+@Service
+public class ShipmentDispatcher {
+
+    public static final String EVENT_SHIPMENT_CREATE = "shipment.create";
+
+    static final int BATCH_SIZE          = 20;
+    static final int WORKERS             = 4;
+    static final int MAX_ATTEMPTS        = 8;
+    static final Duration POLL_INTERVAL  = Duration.ofSeconds(5);
+    static final Duration LEASE          = Duration.ofMinutes(5);
+    static final Duration FIRST_BACKOFF  = Duration.ofSeconds(30);
+    static final Duration MAX_BACKOFF    = Duration.ofHours(1);
+
+    private record Claimed(long eventId, long orderId, int attempts) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final GarmentRepository garmentRepository;
+    private final ShiprocketService shiprocketService;
+    private final ApplicationLogger logger;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("shipment-poller"));
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKERS, daemonThreads("shipment-worker"));
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+
+    public ShipmentDispatcher(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              OrderRepository orderRepository,
+                              OrderItemRepository orderItemRepository,
+                              GarmentRepository garmentRepository,
+                              ShiprocketService shiprocketService,
+                              ApplicationLogger logger) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.orderRepository     = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.garmentRepository   = garmentRepository;
+        this.shiprocketService   = shiprocketService;
+        this.logger              = logger;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!shiprocketService.isConfigured()) {
+            logger.info("Shiprocket not configured — shipment events stay queued");
+            return;
+        }
+        poller.scheduleWithFixedDelay(this::dispatchDue,
+                POLL_INTERVAL.toMillis(), POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /** Queues shipment creation for an order — must run inside the order's transaction */
+    public void enqueue(Long orderId) {
+        jdbcTemplate.update(
+                "INSERT INTO outbox_events (event_type, aggregate_id, next_attempt_at) VALUES (?, ?, ?)",
+                EVENT_SHIPMENT_CREATE, orderId, Timestamp.from(Instant.now()));
+    }
+
+    /** Dispatches right away instead of at the next poll — call after the order has committed */
+    public void wake() {
+        if (!shiprocketService.isConfigured() || !wakePending.compareAndSet(false, true)) return;
+        poller.execute(() -> {
+            wakePending.set(false);
+            dispatchDue();
+        });
+    }
+
+    private void dispatchDue() {
+        try {
+            List<Claimed> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) dispatch(batch);
+            } while (batch.size() == BATCH_SIZE);
+        } catch (Exception e) {
+            logger.error("Shipment dispatch round failed: {}", e.getMessage());
+        }
+    }
+
+    /** Leases up to BATCH_SIZE due events; SKIP LOCKED lets several instances poll side by side */
+    private List<Claimed> claim() {
+        List<Claimed> claimed = transactionTemplate.execute(status -> {
+            List<Claimed> rows = jdbcTemplate.query(
+                    "SELECT id, aggregate_id, attempts FROM outbox_events " +
+                    "WHERE status = 'PENDING' AND event_type = ? AND next_attempt_at <= ? " +
+                    "ORDER BY next_attempt_at, id LIMIT " + BATCH_SIZE + " FOR UPDATE SKIP LOCKED",
+                    (rs, i) -> new Claimed(rs.getLong(1), rs.getLong(2), rs.getInt(3) + 1),
+                    EVENT_SHIPMENT_CREATE, Timestamp.from(Instant.now()));
+            if (rows.isEmpty()) return rows;
+            List<Object[]> args = new ArrayList<>(rows.size());
+            Timestamp leaseEnd = Timestamp.from(Instant.now().plus(LEASE));
+            for (Claimed c : rows) args.add(new Object[]{ leaseEnd, c.eventId() });
+            jdbcTemplate.batchUpdate(
+                    "UPDATE outbox_events SET attempts = attempts + 1, next_attempt_at = ? WHERE id = ?", args);
+            return rows;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    private void dispatch(List<Claimed> batch) throws InterruptedException {
+        Set<Long> orderIds = new HashSet<>();
+        for (Claimed c : batch) orderIds.add(c.orderId());
+        Map<Long, OrderEntity> orders = new HashMap<>();
+        for (OrderEntity o : orderRepository.findAllById(orderIds)) orders.put(o.getId(), o);
+        Map<Long, List<OrderItemEntity>> itemsByOrder = new HashMap<>();
+        Set<Long> garmentIds = new HashSet<>();
+        for (OrderItemEntity oi : orderItemRepository.findByOrderIdIn(orderIds)) {
+            itemsByOrder.computeIfAbsent(oi.getOrderId(), k -> new ArrayList<>()).add(oi);
+            garmentIds.add(oi.getGarmentId());
+        }
+        Map<Long, String> garmentNames = new HashMap<>();
+        for (GarmentEntity g : garmentRepository.findAllById(garmentIds)) garmentNames.put(g.getId(), g.getName());
+
+        List<Callable<Object>> calls = new ArrayList<>(batch.size());
+        Map<Claimed, Object> results = new ConcurrentHashMap<>();   // Shipment or the failure message
+        for (Claimed c : batch) {
+            OrderEntity order = orders.get(c.orderId());
+            if (order == null) {
+                results.put(c, "Order no longer exists");
+                continue;
+            }
+            List<OrderItemEntity> items = itemsByOrder.getOrDefault(c.orderId(), List.of());
+            calls.add(() -> {
+                try {
+                    results.put(c, shiprocketService.createShipment(order, items, garmentNames));
+                } catch (RuntimeException e) {
+                    results.put(c, String.valueOf(e.getMessage()));
+                }
+                return null;
+            });
+        }
+        workers.invokeAll(calls);
+        writeBack(results);
+    }
+
+    private void writeBack(Map<Claimed, Object> results) {
+        List<Object[]> shipped = new ArrayList<>();
+        List<Object[]> done = new ArrayList<>();
+        List<Object[]> retry = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        AtomicInteger gaveUp = new AtomicInteger();
+
+        results.forEach((c, result) -> {
+            if (result instanceof ShiprocketService.Shipment s) {
+                shipped.add(new Object[]{ s.awb(), s.shiprocketOrderId(), c.orderId() });
+                done.add(new Object[]{ c.eventId() });
+            } else if (c.attempts() >= MAX_ATTEMPTS) {
+                failed.add(new Object[]{ truncate(result), c.eventId() });
+                gaveUp.incrementAndGet();
+                logger.error("Shipment for order {} abandoned after {} attempts: {}", c.orderId(), c.attempts(), result);
+            } else {
+                retry.add(new Object[]{ Timestamp.from(Instant.now().plus(backoff(c.attempts()))), truncate(result), c.eventId() });
+                logger.warn("Shipment for order {} failed (attempt {}), retrying: {}", c.orderId(), c.attempts(), result);
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!shipped.isEmpty()) {
+                // keep an AWB that may have arrived by webhook meanwhile
+                jdbcTemplate.batchUpdate("UPDATE orders SET tracking_awb = COALESCE(?, tracking_awb), " +
+                        "shiprocket_order_id = ? WHERE id = ?", shipped);
+                jdbcTemplate.batchUpdate("UPDATE outbox_events SET status = 'DONE', last_error = NULL WHERE id = ?", done);
+            }
+            if (!retry.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE outbox_events SET next_attempt_at = ?, last_error = ? WHERE id = ?", retry);
+            }
+            if (!failed.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE outbox_events SET status = 'FAILED', last_error = ? WHERE id = ?", failed);
+            }
+        });
+        logger.info("Shipment dispatch: {} created, {} to retry, {} abandoned",
+                shipped.size(), retry.size(), gaveUp.get());
+    }
+
+    /** 30 s, 1 min, 2 min … capped at an hour, with up to 20 % jitter so retries do not arrive in lockstep */
+    static Duration backoff(int attempts) {
+        long millis = FIRST_BACKOFF.toMillis() << Math.min(attempts - 1, 16);
+        millis = Math.min(millis, MAX_BACKOFF.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+
+    private static String truncate(Object message) {
+        String s = String.valueOf(message);
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.shop.demo.service.shiprocket;
+
+/** Shiprocket could not be reached or rejected a request — the caller may retry */
+public class ShiprocketException extends RuntimeException {
+
+    public ShiprocketException(String message) {
+        super(message);
+    }
+
+    public ShiprocketException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,22 +2,29 @@ package com.shop.demo.service.shiprocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shop.demo.database.entity.project.shop.GarmentEntity;
 import com.shop.demo.database.entity.project.shop.OrderEntity;
 import com.shop.demo.database.entity.project.shop.OrderItemEntity;
-import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
 import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.http.OutboundClient;
+import com.shop.demo.service.http.OutboundHttpClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Integrates with Shiprocket to automate shipment creation after an order is placed.
- * All methods are best-effort: any Shiprocket failure is logged but never
- * propagates to the caller (so orders always succeed even if Shiprocket is down).
+ * Calls are made by {@link ShipmentDispatcher} off the request path; a failure
+ * surfaces as {@link ShiprocketException} and the dispatcher retries later, so
+ * orders always succeed even if Shiprocket is down. HTTP goes through the
+ * shared shiprocket {@link OutboundClient} (pooled, time-limited, circuit-broken).
  *
  * Setup: fill in shiprocket.email + shiprocket.password in application.properties.
  * Leave them blank to run the app without Shiprocket.
@@ -25,7 +32,8 @@ import java.util.*;
 @Service
 public class ShiprocketService {
 
-    private static final String BASE = "https://apiv2.shiprocket.in/v1/external";
+    @Value("${shiprocket.api-base-url:https://apiv2.shiprocket.in/v1/external}")
+    private String baseUrl;
 
     @Value("${shiprocket.email:}")
     private String email;
@@ -36,40 +44,46 @@ public class ShiprocketService {
     @Value("${shiprocket.pickup-location:Primary}")
     private String pickupLocation;
 
-    private final RestTemplate   restTemplate = new RestTemplate();
-    private final ObjectMapper   mapper       = new ObjectMapper();
+    private static final long TOKEN_TTL_MILLIS  = 23L * 60 * 60 * 1000;   // tokens last 24 h; refresh at 23 h
+    private static final long LOGIN_WAIT_MILLIS = 20_000;
+
+    private record Token(String value, long expiresAt) {}
+
+    private final OutboundClient http;
+    private final ObjectMapper   mapper = new ObjectMapper();
     private final ApplicationLogger logger;
 
-    // Token cache — Shiprocket tokens last 24 h; we refresh every 23 h
-    private String token;
-    private long   tokenExpiry = 0;
+    private volatile Token token;
+    private final AtomicReference<CompletableFuture<Token>> login = new AtomicReference<>();
 
-    public ShiprocketService(ApplicationLogger logger) {
+    public ShiprocketService(OutboundHttpClients outboundHttpClients, ApplicationLogger logger) {
+        this.http   = outboundHttpClients.shiprocket();
         this.logger = logger;
     }
 
+    /** Shiprocket's ids for a created order; awb stays null until a courier is assigned */
+    public record Shipment(String shiprocketOrderId, String shipmentId, String awb) {}
+
+    public boolean isConfigured() {
+        return !email.isBlank() && !password.isBlank();
+    }
+
     /**
-     * Creates a Shiprocket shipment for the given order.
-     * @return AWB tracking code, or null if Shiprocket is not configured / failed.
+     * Creates a Shiprocket order + shipment for the given order.
+     * garmentNames (garment id → name) labels the lines; missing names fall back to the id.
+     * @throws ShiprocketException if Shiprocket is unreachable or rejects the order — safe to retry
      */
-    public String createShipment(OrderEntity order,
-                                 List<OrderItemEntity> items,
-                                 GarmentRepository garmentRepo) {
-        if (email.isBlank() || password.isBlank()) {
-            logger.info("Shiprocket not configured — skipping shipment for order {}", order.getId());
-            return null;
-        }
-
+    public Shipment createShipment(OrderEntity order,
+                                   List<OrderItemEntity> items,
+                                   Map<Long, String> garmentNames) {
         String tok = getToken();
-        if (tok == null) return null;
-
         try {
             // Build order_items array
             List<Map<String, Object>> srItems = new ArrayList<>();
             for (OrderItemEntity item : items) {
-                GarmentEntity g = garmentRepo.findById(item.getGarmentId()).orElse(null);
+                String name = garmentNames.get(item.getGarmentId());
                 Map<String, Object> si = new LinkedHashMap<>();
-                si.put("name",          g != null ? g.getName() + " (" + item.getSize() + ")" : "Item #" + item.getGarmentId());
+                si.put("name",          name != null ? name + " (" + item.getSize() + ")" : "Item #" + item.getGarmentId());
                 si.put("sku",           "AL-" + item.getGarmentId() + "-" + item.getSize());
                 si.put("units",         item.getQuantity());
                 si.put("selling_price", item.getUnitPrice().toPlainString());
@@ -106,48 +120,103 @@ public class ShiprocketService {
             String body = mapper.writeValueAsString(payload);
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
 
-            ResponseEntity<String> res = restTemplate.postForEntity(
-                    BASE + "/orders/create/adhoc", entity, String.class);
+            ResponseEntity<String> res = http.call("create-order",
+                    rt -> rt.postForEntity(baseUrl + "/orders/create/adhoc", entity, String.class));
 
             JsonNode json = mapper.readTree(res.getBody());
             if (json.has("shipment_id")) {
-                String awb = json.path("awb_code").asText(null);
+                Shipment shipment = new Shipment(text(json, "order_id"), text(json, "shipment_id"), text(json, "awb_code"));
                 logger.info("Shiprocket shipment created: order={}, shipmentId={}, awb={}",
-                        order.getId(), json.path("shipment_id").asText(), awb);
-                return awb;
+                        order.getId(), shipment.shipmentId(), shipment.awb());
+                return shipment;
             }
-            logger.info("Shiprocket response for order {}: {}", order.getId(), res.getBody());
+            throw new ShiprocketException("Unexpected Shiprocket response for order " + order.getId() + ": " + res.getBody());
 
+        } catch (HttpClientErrorException.Unauthorized e) {
+            invalidateToken(tok);
+            throw new ShiprocketException("Shiprocket token rejected for order " + order.getId(), e);
+        } catch (ShiprocketException e) {
+            throw e;
         } catch (Exception e) {
-            logger.info("Shiprocket createShipment failed for order {}: {}", order.getId(), e.getMessage());
+            throw new ShiprocketException("Shiprocket createShipment failed for order " + order.getId() + ": " + e.getMessage(), e);
         }
-        return null;
+    }
+
+    private static String text(JsonNode json, String field) {
+        String value = json.path(field).asText("");
+        return value.isBlank() ? null : value;
     }
 
     // ── Token management ──────────────────────────────────────
 
+    /**
+     * Current token, logging in if it has expired. Single-flight: when many
+     * callers find it expired at once, one logs in and the rest wait for that
+     * result instead of each sending its own login.
+     */
     private String getToken() {
-        if (token != null && System.currentTimeMillis() < tokenExpiry) return token;
+        Token t = token;
+        if (t != null && System.currentTimeMillis() < t.expiresAt()) return t.value();
+
+        CompletableFuture<Token> mine = new CompletableFuture<>();
+        CompletableFuture<Token> inFlight = login.compareAndExchange(null, mine);
+        if (inFlight != null) return await(inFlight);
+        try {
+            t = token;   // another caller may have finished a login just before we won the race
+            if (t == null || System.currentTimeMillis() >= t.expiresAt()) {
+                t = fetchToken();
+                token = t;
+            }
+            mine.complete(t);
+            return t.value();
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            login.set(null);
+        }
+    }
+
+    private Token fetchToken() {
         try {
             Map<String, String> creds = Map.of("email", email, "password", password);
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<String> entity = new HttpEntity<>(mapper.writeValueAsString(creds), headers);
 
-            ResponseEntity<String> res = restTemplate.postForEntity(
-                    BASE + "/auth/login", entity, String.class);
+            ResponseEntity<String> res = http.call("login",
+                    rt -> rt.postForEntity(baseUrl + "/auth/login", entity, String.class));
 
-            JsonNode json = mapper.readTree(res.getBody());
-            token       = json.path("token").asText(null);
-            tokenExpiry = System.currentTimeMillis() + 23L * 60 * 60 * 1000; // 23 h
+            String value = mapper.readTree(res.getBody()).path("token").asText("");
+            if (value.isBlank()) throw new ShiprocketException("Shiprocket login returned no token");
             logger.info("Shiprocket authentication successful");
-            return token;
+            return new Token(value, System.currentTimeMillis() + TOKEN_TTL_MILLIS);
+        } catch (ShiprocketException e) {
+            throw e;
         } catch (Exception e) {
-            logger.info("Shiprocket authentication failed: {}", e.getMessage());
-            return null;
+            throw new ShiprocketException("Shiprocket authentication failed: " + e.getMessage(), e);
         }
     }
 
+    private static String await(CompletableFuture<Token> inFlight) {
+        try {
+            return inFlight.get(LOGIN_WAIT_MILLIS, TimeUnit.MILLISECONDS).value();
+        } catch (ExecutionException e) {
+            throw new ShiprocketException("Shiprocket authentication failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new ShiprocketException("Timed out waiting for Shiprocket login", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShiprocketException("Interrupted waiting for Shiprocket login", e);
+        }
+    }
+
+    /** Drops the cached token if it is still the one Shiprocket rejected */
+    private void invalidateToken(String rejected) {
+        Token t = token;
+        if (t != null && t.value().equals(rejected)) token = null;
+    }
+
     private HttpHeaders jsonHeaders(String tok) {
         HttpHeaders h = new HttpHeaders();
         h.setContentType(MediaType.APPLICATION_JSON);
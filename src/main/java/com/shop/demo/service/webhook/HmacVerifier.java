@@ -0,0 +1,61 @@
+package com.shop.demo.service.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * HMAC-SHA256 signature check for one secret. Each thread keeps its own
+ * keyed Mac, so a verification is a doFinal — no provider lookup or key
+ * setup per call. The hex signature is decoded and compared in constant
+ * time, so response timing says nothing about how much of a forged
+ * signature was right.
+ */
+public final class HmacVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean configured;
+    private final ThreadLocal<Mac> mac;
+
+    public HmacVerifier(String secret) {
+        this.configured = secret != null && !secret.isBlank();
+        SecretKeySpec key = configured ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM) : null;
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance(ALGORITHM);
+                m.init(key);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+    }
+
+    public boolean isConfigured() {
+        return configured;
+    }
+
+    /** True if expectedHex is the HMAC of data; always false without a secret */
+    public boolean verify(String data, String expectedHex) {
+        if (!configured || data == null || expectedHex == null) return false;
+        byte[] expected = decodeHex(expectedHex);
+        if (expected == null) return false;
+        byte[] actual = mac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));   // doFinal also resets the Mac
+        return MessageDigest.isEqual(actual, expected);
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if (hex.length() % 2 != 0) return null;
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) return null;
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,262 @@
+package com.shop.demo.service.webhook;
+
+import com.shop.demo.logMaintain.ApplicationLogger;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONObject;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable inbox for provider webhooks. The request thread only verifies the
+ * signature (in the controller) and stores the raw event with one
+ * INSERT IGNORE — a redelivered event id hits the (provider, event_id) key
+ * and is dropped — so providers get their 2xx without waiting on order
+ * updates.
+ *
+ * A background applier drains the inbox in id order, up to
+ * {@link #BATCH_SIZE} events per transaction. Transitions are collapsed per
+ * order key (last event wins) and written as one set-based UPDATE per target
+ * status over the payment_ref / tracking_awb indexes. A single applier keeps
+ * events for the same order in arrival order; events that cannot be parsed
+ * are marked FAILED without holding up the rest of the batch. If the batch
+ * transaction itself fails, its rows stay PENDING and are retried on the next
+ * poll.
+ */
+@Service
+public class WebhookInboxService {
+
+    public static final String PROVIDER_RAZORPAY   = "razorpay";
+    public static final String PROVIDER_SHIPROCKET = "shiprocket";
+
+    static final int BATCH_SIZE          = 200;
+    static final Duration POLL_INTERVAL  = Duration.ofSeconds(2);
+    static final Duration RETENTION      = Duration.ofDays(7);
+    static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    /** Largest payload the controllers store — provider events are a few KB */
+    public static final int MAX_PAYLOAD_CHARS = 64 * 1024;
+
+    /** One claimed inbox row */
+    private record Event(long id, String provider, String payload) {}
+
+    /** Status changes gathered from one batch, keyed by the column that finds the order */
+    private static final class Transitions {
+        final Map<String, String> paymentStatusByRef = new LinkedHashMap<>();
+        final Map<String, String> orderStatusByAwb   = new LinkedHashMap<>();
+        final List<Object[]> failed                  = new ArrayList<>();
+        final List<Object[]> done                    = new ArrayList<>();
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationLogger logger;
+
+    private final ScheduledExecutorService applier = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "webhook-applier");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+
+    public WebhookInboxService(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ApplicationLogger logger) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.logger              = logger;
+    }
+
+    /** Starts the applier (which also drains anything left PENDING) and the hourly purge of old processed events */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        applier.scheduleWithFixedDelay(this::purge, 0, PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        applier.scheduleWithFixedDelay(this::drain, 0, POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        applier.shutdownNow();
+    }
+
+    /**
+     * Stores a verified event for the applier. eventId is the provider's id
+     * for the event; without one a digest of the payload stands in, so
+     * byte-identical redeliveries still dedupe.
+     *
+     * @return false if the event was already received
+     */
+    public boolean accept(String provider, String eventId, String payload) {
+        String key = eventId != null && !eventId.isBlank() ? eventId : "sha256:" + sha256Hex(payload);
+        int inserted = jdbcTemplate.update(
+                "INSERT IGNORE INTO webhook_inbox (provider, event_id, payload, received_at) VALUES (?, ?, ?, ?)",
+                provider, key, payload, Timestamp.from(Instant.now()));
+        if (inserted == 1) wake();
+        return inserted == 1;
+    }
+
+    private void purge() {
+        try {
+            int rows = jdbcTemplate.update("DELETE FROM webhook_inbox WHERE status <> 'PENDING' AND received_at < ?",
+                    Timestamp.from(Instant.now().minus(RETENTION)));
+            if (rows > 0) logger.info("Webhook inbox purged: {}", rows);
+        } catch (Exception e) {
+            logger.error("Webhook inbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    private void wake() {
+        if (!wakePending.compareAndSet(false, true)) return;
+        applier.execute(() -> {
+            wakePending.set(false);
+            drain();
+        });
+    }
+
+    private void drain() {
+        try {
+            int applied;
+            do {
+                applied = applyBatch();
+            } while (applied == BATCH_SIZE);
+        } catch (Exception e) {
+            logger.error("Webhook inbox batch failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /** Claims, applies and completes one batch in a single transaction; returns its size */
+    private int applyBatch() {
+        Transitions t = new Transitions();
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<Event> events = jdbcTemplate.query(
+                    "SELECT id, provider, payload FROM webhook_inbox WHERE status = 'PENDING' " +
+                    "ORDER BY id LIMIT " + BATCH_SIZE + " FOR UPDATE SKIP LOCKED",
+                    (rs, i) -> new Event(rs.getLong(1), rs.getString(2), rs.getString(3)));
+            if (events.isEmpty()) return 0;
+
+            for (Event e : events) {
+                try {
+                    collect(e, t);
+                    t.done.add(new Object[]{ e.id() });
+                } catch (Exception ex) {
+                    logger.warn("Webhook event {} ({}) rejected: {}", e.id(), e.provider(), ex.getMessage());
+                    t.failed.add(new Object[]{ truncate(ex.getMessage()), e.id() });
+                }
+            }
+            apply(t);
+
+            Timestamp now = Timestamp.from(Instant.now());
+            List<Object[]> doneArgs = new ArrayList<>(t.done.size());
+            for (Object[] d : t.done) doneArgs.add(new Object[]{ now, d[0] });
+            List<Object[]> failedArgs = new ArrayList<>(t.failed.size());
+            for (Object[] f : t.failed) failedArgs.add(new Object[]{ f[0], now, f[1] });
+            if (!doneArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE webhook_inbox SET status = 'DONE', processed_at = ? WHERE id = ?", doneArgs);
+            }
+            if (!failedArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE webhook_inbox SET status = 'FAILED', last_error = ?, processed_at = ? WHERE id = ?",
+                        failedArgs);
+            }
+            return events.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+
+    // ── Parsing: event → transition ──────────────────────────
+
+    private static void collect(Event e, Transitions t) {
+        JSONObject payload = new JSONObject(e.payload());
+        if (PROVIDER_RAZORPAY.equals(e.provider())) {
+            String event = payload.optString("event", "");
+            if ("payment.captured".equals(event)) {
+                JSONObject payment = paymentEntity(payload);
+                t.paymentStatusByRef.put(payment.getString("id"), "PAID");
+            } else if ("payment.failed".equals(event)) {
+                JSONObject payment = paymentEntity(payload);
+                // the hold stays: the shopper may retry within the same Razorpay order — it ends on dismiss or TTL
+                t.paymentStatusByRef.put(payment.getString("id"), "FAILED");
+            }
+        } else if (PROVIDER_SHIPROCKET.equals(e.provider())) {
+            String awb = payload.optString("awb", "");
+            String orderStatus = shiprocketOrderStatus(payload.optString("current_status", ""));
+            if (!awb.isBlank() && orderStatus != null) t.orderStatusByAwb.put(awb, orderStatus);
+        } else {
+            throw new IllegalArgumentException("Unknown provider " + e.provider());
+        }
+    }
+
+    private static JSONObject paymentEntity(JSONObject payload) {
+        return payload.getJSONObject("payload").getJSONObject("payment").getJSONObject("entity");
+    }
+
+    /** Shiprocket status text → order status, or null for statuses that do not move the order */
+    private static String shiprocketOrderStatus(String status) {
+        if ("Delivered".equalsIgnoreCase(status)) return "DELIVERED";
+        if ("Shipped".equalsIgnoreCase(status)
+                || "In Transit".equalsIgnoreCase(status)
+                || "Out For Delivery".equalsIgnoreCase(status)) return "SHIPPED";
+        return null;
+    }
+
+    // ── Applying: one UPDATE per target status ───────────────
+
+    private void apply(Transitions t) {
+        int paid   = updateWhereIn("UPDATE orders SET payment_status = ? WHERE payment_ref IN ",
+                "PAID", keysWith(t.paymentStatusByRef, "PAID"), "");
+        int failed = updateWhereIn("UPDATE orders SET payment_status = ? WHERE payment_ref IN ",
+                "FAILED", keysWith(t.paymentStatusByRef, "FAILED"), "");
+        // a late "in transit" must not pull a delivered order back
+        int shipped = updateWhereIn("UPDATE orders SET order_status = ? WHERE tracking_awb IN ",
+                "SHIPPED", keysWith(t.orderStatusByAwb, "SHIPPED"), " AND order_status NOT IN ('DELIVERED', 'CANCELLED')");
+        int delivered = updateWhereIn("UPDATE orders SET order_status = ? WHERE tracking_awb IN ",
+                "DELIVERED", keysWith(t.orderStatusByAwb, "DELIVERED"), " AND order_status <> 'CANCELLED'");
+        if (paid + failed + shipped + delivered > 0) {
+            logger.info("Webhook batch applied: {} paid, {} payment failed, {} shipped, {} delivered",
+                    paid, failed, shipped, delivered);
+        }
+    }
+
+    private int updateWhereIn(String sqlPrefix, String status, List<String> keys, String extraCondition) {
+        if (keys.isEmpty()) return 0;
+        List<Object> args = new ArrayList<>(keys.size() + 1);
+        args.add(status);
+        args.addAll(keys);
+        return jdbcTemplate.update(sqlPrefix + "(" + String.join(",", Collections.nCopies(keys.size(), "?")) + ")"
+                + extraCondition, args.toArray());
+    }
+
+    private static List<String> keysWith(Map<String, String> statusByKey, String status) {
+        List<String> keys = new ArrayList<>();
+        statusByKey.forEach((k, v) -> { if (v.equals(status)) keys.add(k); });
+        return keys;
+    }
+
+    private static String sha256Hex(String payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        String s = String.valueOf(message);
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+}
@@ -9,17 +9,26 @@ SET FOREIGN_KEY_CHECKS = 0;
 -- DROP ALL TABLES (including any legacy ones)
 -- ===========================================================
 DROP TABLE IF EXISTS order_items;
+DROP TABLE IF EXISTS garment_sales;
 DROP TABLE IF EXISTS support_tickets;
 DROP TABLE IF EXISTS cart_items;
+DROP TABLE IF EXISTS abandoned_cart_stats;
+DROP TABLE IF EXISTS inventory_reservations;
+DROP TABLE IF EXISTS idempotency_keys;
+DROP TABLE IF EXISTS outbox_events;
+DROP TABLE IF EXISTS webhook_inbox;
 DROP TABLE IF EXISTS orders;
 DROP TABLE IF EXISTS customization_designs;
 DROP TABLE IF EXISTS customizations;
+DROP TABLE IF EXISTS garment_skus;
 DROP TABLE IF EXISTS garments;
+DROP TABLE IF EXISTS category_closure;
 DROP TABLE IF EXISTS categories;
 DROP TABLE IF EXISTS activity_logs;
 DROP TABLE IF EXISTS SPRING_SESSION_ATTRIBUTES;
 DROP TABLE IF EXISTS SPRING_SESSION;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS id_sequences;
 
 -- ===========================================================
 -- USERS TABLE
@@ -55,11 +64,25 @@ CREATE INDEX users_session_id_idx ON users (session_id);
 CREATE INDEX users_session_expiry_idx ON users (session_expiry_time);
 CREATE INDEX users_session_principal_idx ON users (session_principal_name);
 
+-- ===========================================================
+-- ID SEQUENCES (pooled id blocks for entities that use @TableGenerator,
+-- each instance reserves 50 ids per round trip, so inserts can be batched)
+-- ===========================================================
+CREATE TABLE id_sequences (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
+);
+
+INSERT INTO id_sequences (sequence_name, next_val) VALUES
+    ('activity_logs', 1),
+    ('orders', 1),
+    ('order_items', 1);
+
 -- ===========================================================
 -- ACTIVITY LOGS
 -- ===========================================================
 CREATE TABLE activity_logs (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT NOT NULL,
     role_mask INT NOT NULL,
     event_type VARCHAR(100) NOT NULL,
@@ -80,7 +103,22 @@ CREATE TABLE categories (
     depth INT NOT NULL DEFAULT 0,
     parent_id BIGINT,
     display_order INT DEFAULT 0,
-    FOREIGN KEY (parent_id) REFERENCES categories(id)
+    FOREIGN KEY (parent_id) REFERENCES categories(id),
+    INDEX idx_categories_parent_order (parent_id, display_order)
+);
+
+-- ===========================================================
+-- CATEGORY CLOSURE (one row per ancestor/descendant pair, incl. self at depth 0)
+-- Maintained by CategoryTreeService, rebuilt from parent_id on startup if out of sync
+-- ===========================================================
+CREATE TABLE category_closure (
+    ancestor_id BIGINT NOT NULL,
+    descendant_id BIGINT NOT NULL,
+    depth INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_category_closure_descendant (descendant_id, depth),
+    FOREIGN KEY (ancestor_id) REFERENCES categories(id) ON DELETE CASCADE,
+    FOREIGN KEY (descendant_id) REFERENCES categories(id) ON DELETE CASCADE
 );
 
 -- ===========================================================
@@ -92,7 +130,7 @@ CREATE TABLE garments (
     description TEXT,
     garment_type VARCHAR(100),
     category_id BIGINT,
-    base_price INT,
+    base_price INT NOT NULL DEFAULT 0,
     type VARCHAR(50),
     base_color VARCHAR(30),
     gsm INT,
@@ -101,32 +139,138 @@ CREATE TABLE garments (
     image_url VARCHAR(512),
     stock_quantity INT NOT NULL DEFAULT 0,
     cost_price INT NOT NULL DEFAULT 0,
+    units_sold INT NOT NULL DEFAULT 0,
     active TINYINT(1) DEFAULT 1,
     featured TINYINT(1) DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES categories(id)
 );
 
+-- Shop listing (/server/garments/list) — keyset scans per sort order
+CREATE INDEX idx_garments_list_price    ON garments (active, base_price, id);
+CREATE INDEX idx_garments_list_type     ON garments (active, garment_type, base_price, id);
+CREATE INDEX idx_garments_list_type_new ON garments (active, garment_type, id);
+CREATE INDEX idx_garments_list_category ON garments (active, category_id, base_price, id);
+CREATE INDEX idx_garments_list_popular  ON garments (active, units_sold, id);
+
+-- ===========================================================
+-- GARMENT SKUS (per-size stock, garments.stock_quantity is their sum)
+-- ===========================================================
+CREATE TABLE garment_skus (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    garment_id BIGINT NOT NULL,
+    size VARCHAR(10) NOT NULL,
+    stock_quantity INT NOT NULL DEFAULT 0,
+    UNIQUE KEY uq_garment_skus_garment_size (garment_id, size),
+    INDEX idx_garment_skus_size_stock (size, stock_quantity, garment_id),
+    FOREIGN KEY (garment_id) REFERENCES garments(id) ON DELETE CASCADE
+);
+
+-- ===========================================================
+-- INVENTORY RESERVATIONS (units held between Razorpay order creation and
+-- payment verify, already deducted from garment_skus.stock_quantity)
+-- ===========================================================
+CREATE TABLE inventory_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    reference VARCHAR(64) NOT NULL,
+    user_id BIGINT NOT NULL,
+    garment_id BIGINT NOT NULL,
+    size VARCHAR(10) NOT NULL,
+    quantity INT NOT NULL,
+    expires_at DATETIME(3) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_reservations_user (user_id, expires_at),
+    INDEX idx_reservations_reference (reference),
+    INDEX idx_reservations_expires (expires_at),
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (garment_id) REFERENCES garments(id) ON DELETE CASCADE
+);
+
+-- ===========================================================
+-- IDEMPOTENCY KEYS (first response per checkout / verify key,
+-- status_code is NULL while the first request is still running,
+-- order_id is set in the order's own transaction)
+-- ===========================================================
+CREATE TABLE idempotency_keys (
+    scope VARCHAR(32) NOT NULL,
+    idem_key VARCHAR(128) NOT NULL,
+    owner_id BIGINT,
+    order_id BIGINT,
+    status_code INT,
+    response_body MEDIUMTEXT,
+    created_at DATETIME(3) NOT NULL,
+    completed_at DATETIME(3),
+    PRIMARY KEY (scope, idem_key),
+    INDEX idx_idempotency_keys_created (created_at)
+);
+
+-- ===========================================================
+-- OUTBOX EVENTS (side effects written in the same transaction as the
+-- change that causes them, drained by ShipmentDispatcher)
+-- ===========================================================
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    status ENUM('PENDING','DONE','FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(3) NOT NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uq_outbox_event (event_type, aggregate_id),
+    INDEX idx_outbox_due (status, next_attempt_at, id)
+);
+
+-- ===========================================================
+-- WEBHOOK INBOX (verified provider events, stored on receipt and applied
+-- in the background by WebhookInboxService, event_id dedupes redeliveries)
+-- ===========================================================
+CREATE TABLE webhook_inbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    provider VARCHAR(20) NOT NULL,
+    event_id VARCHAR(128) NOT NULL,
+    payload MEDIUMTEXT NOT NULL,
+    status ENUM('PENDING','DONE','FAILED') NOT NULL DEFAULT 'PENDING',
+    last_error VARCHAR(500),
+    received_at DATETIME(3) NOT NULL,
+    processed_at DATETIME(3),
+    UNIQUE KEY uq_webhook_event (provider, event_id),
+    INDEX idx_webhook_inbox_pending (status, id)
+);
+
 -- ===========================================================
 -- CART ITEMS
 -- ===========================================================
 CREATE TABLE cart_items (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
     user_id BIGINT NOT NULL,
     garment_id BIGINT NOT NULL,
     size VARCHAR(10) NOT NULL DEFAULT 'M',
     quantity INT DEFAULT 1,
+    price_at_add INT NULL,
     added_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (garment_id) REFERENCES garments(id),
-    UNIQUE KEY uq_cart_user_garment_size (user_id, garment_id, size)
+    UNIQUE KEY uq_cart_user_garment_size (user_id, garment_id, size),
+    INDEX idx_cart_updated (updated_at, id)     -- abandoned-cart sweep, oldest first
+);
+
+-- Running totals of what the abandoned-cart sweep removed, per garment
+CREATE TABLE abandoned_cart_stats (
+    garment_id BIGINT PRIMARY KEY,
+    line_count BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    value BIGINT NOT NULL DEFAULT 0,
+    last_swept_at TIMESTAMP NOT NULL
 );
 
 -- ===========================================================
 -- ORDERS
 -- ===========================================================
 CREATE TABLE orders (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT NOT NULL,
     total_amount DECIMAL(10,2) NOT NULL,
     payment_status ENUM('PENDING','PAID','FAILED') DEFAULT 'PENDING',
@@ -144,11 +288,17 @@ CREATE TABLE orders (
     FOREIGN KEY (user_id) REFERENCES users(id)
 );
 
+-- Order history (/server/user/orders/history) — keyset scan per user, newest first
+CREATE INDEX idx_orders_user_created ON orders (user_id, created_at);
+-- Webhook lookups — Razorpay events by payment id, Shiprocket events by AWB
+CREATE INDEX idx_orders_payment_ref ON orders (payment_ref);
+CREATE INDEX idx_orders_tracking_awb ON orders (tracking_awb);
+
 -- ===========================================================
 -- ORDER ITEMS
 -- ===========================================================
 CREATE TABLE order_items (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     order_id BIGINT NOT NULL,
     garment_id BIGINT NOT NULL,
     size VARCHAR(10) NOT NULL,
@@ -158,6 +308,14 @@ CREATE TABLE order_items (
     FOREIGN KEY (garment_id) REFERENCES garments(id)
 );
 
+-- Running sales totals per garment, updated in each order's transaction (admin dashboard)
+CREATE TABLE garment_sales (
+    garment_id BIGINT PRIMARY KEY,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    cost DECIMAL(14,2) NOT NULL DEFAULT 0
+);
+
 -- ===========================================================
 -- SUPPORT TICKETS
 -- ===========================================================
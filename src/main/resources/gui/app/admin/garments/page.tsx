@@ -138,9 +138,9 @@ export default function AdminGarmentsPage() {
     setError('');
     try {
       if (editing) {
-        await garmentAdminApi.update(editing.id, payload);
+        const res = await garmentAdminApi.update(editing.id, { ...payload, version: editing.version });
         setGarments((prev) =>
-          prev.map((g) => g.id === editing.id ? ({ ...g, ...payload } as Garment) : g)
+          prev.map((g) => g.id === editing.id ? (res.data as Garment) : g)
         );
       } else {
         await garmentAdminApi.create(payload);
@@ -148,8 +148,9 @@ export default function AdminGarmentsPage() {
         setGarments(fresh.data);
       }
       closeForm();
-    } catch {
-      setError('Save failed. Please try again.');
+    } catch (e: unknown) {
+      const res = (e as { response?: { status?: number; data?: { error?: string } } })?.response;
+      setError(res?.status === 409 && res.data?.error ? res.data.error : 'Save failed. Please try again.');
     } finally {
       setSaving(false);
     }
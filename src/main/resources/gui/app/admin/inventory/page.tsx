@@ -188,15 +188,18 @@ export default function AdminInventoryPage() {
     setSaving(true); setError('');
     try {
       if (editing) {
-        await garmentAdminApi.update(editing.id, payload);
-        setGarments((prev) => prev.map((g) => g.id === editing.id ? ({ ...g, ...payload } as Garment) : g));
+        const res = await garmentAdminApi.update(editing.id, { ...payload, version: editing.version });
+        setGarments((prev) => prev.map((g) => g.id === editing.id ? (res.data as Garment) : g));
       } else {
         await garmentAdminApi.create(payload);
         const fresh = await garmentAdminApi.getAll();
         setGarments(fresh.data);
       }
       closeForm();
-    } catch { setError('Save failed. Please try again.'); }
+    } catch (e: unknown) {
+      const res = (e as { response?: { status?: number; data?: { error?: string } } })?.response;
+      setError(res?.status === 409 && res.data?.error ? res.data.error : 'Save failed. Please try again.');
+    }
     finally   { setSaving(false); }
   }
 
@@ -259,10 +262,15 @@ export default function AdminInventoryPage() {
 
     setBatchSaving(true); setError('');
     try {
-      await garmentAdminApi.bulkCreate(requests);
+      const res = await garmentAdminApi.bulkCreate(requests);
       const fresh = await garmentAdminApi.getAll();
       setGarments(fresh.data);
-      closeBatch();
+      const rejected: { index: number; error: string }[] = res.data?.errors ?? [];
+      if (rejected.length > 0) {
+        setError(rejected.map((e) => `Variant ${e.index + 1}: ${e.error}`).join(' · '));
+      } else {
+        closeBatch();
+      }
     } catch { setError('Batch create failed. Please try again.'); }
     finally   { setBatchSaving(false); }
   }
@@ -7,42 +7,36 @@ import { ShoppingBag, Trash2, Minus, Plus, ArrowRight, ArrowLeft } from 'lucide-
 import Link from 'next/link';
 import { useShallow } from 'zustand/react/shallow';
 import { useAuthStore, useCurrencyStore } from '@/lib/store';
-import { cartApi, garmentApi } from '@/lib/api';
+import { cartApi } from '@/lib/api';
 import { formatPrice } from '@/lib/currency';
-import type { CartItem, Garment } from '@/types';
+import type { CartLine, CartView } from '@/types';
 
 export default function CartPage() {
   const router = useRouter();
   const user     = useAuthStore((s) => s.user);
   const currency = useCurrencyStore(useShallow((s) => ({ code: s.code, symbol: s.symbol, rate: s.rate })));
 
-  const [cart, setCart]       = useState<CartItem[]>([]);
-  const [garments, setGarments] = useState<Record<number, Garment>>({});
+  const [view, setView]       = useState<CartView | null>(null);
   const [loading, setLoading] = useState(true);
   const [removing, setRemoving] = useState<number | null>(null);
   const [error, setError]     = useState('');
 
   useEffect(() => {
     if (!user) { router.push('/auth/login'); return; }
-    cartApi.getMine()
-      .then(async (r) => {
-        const items: CartItem[] = r.data;
-        setCart(items);
-        // fetch garments for display
-        const allRes = await garmentApi.getAll();
-        const map: Record<number, Garment> = {};
-        (allRes.data as Garment[]).forEach((g) => { map[g.id] = g; });
-        setGarments(map);
-      })
+    cartApi.getView()
+      .then((r) => setView(r.data))
       .catch(() => setError('Failed to load cart.'))
       .finally(() => setLoading(false));
   }, [user, router]);
 
+  // totals and stock flags are computed server-side — re-read the view after every change
+  const refresh = () => cartApi.getView().then((r) => setView(r.data));
+
   const handleRemove = async (id: number) => {
     setRemoving(id);
     try {
       await cartApi.remove(id);
-      setCart((c) => c.filter((item) => item.id !== id));
+      await refresh();
     } catch {
       setError('Failed to remove item.');
     } finally {
@@ -50,21 +44,19 @@ export default function CartPage() {
     }
   };
 
-  const handleQty = async (item: CartItem, delta: number) => {
+  const handleQty = async (item: CartLine, delta: number) => {
     const newQty = item.quantity + delta;
     if (newQty < 1) return handleRemove(item.id);
     try {
       await cartApi.updateQty(item.id, newQty);
-      setCart((c) => c.map((i) => i.id === item.id ? { ...i, quantity: newQty } : i));
+      await refresh();
     } catch {
       setError('Failed to update quantity.');
     }
   };
 
-  const total = cart.reduce((sum, item) => {
-    const price = garments[item.garmentId]?.basePrice ?? 0;
-    return sum + price * item.quantity;
-  }, 0);
+  const cart  = view?.items ?? [];
+  const total = view?.total ?? 0;
 
   return (
     <div className="min-h-screen pt-24 px-4 pb-16">
@@ -105,14 +97,25 @@ export default function CartPage() {
           <>
             <div className="bg-surface border border-white/10 rounded-2xl divide-y divide-white/5 mb-6">
               {cart.map((item) => {
-                const g = garments[item.garmentId];
-                const lineTotal = (g?.basePrice ?? 0) * item.quantity;
                 return (
                   <div key={item.id} className="flex items-center gap-4 p-5">
-                    <span className="text-3xl">👕</span>
+                    {item.imageUrl
+                      ? <img src={item.imageUrl} alt="" className="w-10 h-10 rounded-lg object-cover" />
+                      : <span className="text-3xl">👕</span>}
                     <div className="flex-1 min-w-0">
-                      <p className="font-bold text-sm truncate">{g?.name ?? `Garment #${item.garmentId}`}</p>
+                      <p className="font-bold text-sm truncate">{item.name ?? `Garment #${item.garmentId}`}</p>
                       <p className="text-white/40 text-xs mt-0.5">Size: <span className="text-white/60 font-medium">{item.size}</span></p>
+                      {item.unavailable ? (
+                        <p className="text-red-400 text-xs mt-0.5">No longer available — remove to continue</p>
+                      ) : item.outOfStock ? (
+                        <p className="text-red-400 text-xs mt-0.5">
+                          {item.available > 0 ? `Only ${item.available} left in this size` : 'Out of stock in this size'}
+                        </p>
+                      ) : item.priceChanged && item.priceAtAdd != null ? (
+                        <p className="text-white/40 text-xs mt-0.5">
+                          Price changed from {formatPrice(item.priceAtAdd, currency)}
+                        </p>
+                      ) : null}
                     </div>
                     <div className="flex items-center gap-2">
                       <button
@@ -130,7 +133,7 @@ export default function CartPage() {
                       </button>
                     </div>
                     <span className="text-gold font-black text-sm w-20 text-right">
-                      {formatPrice(lineTotal, currency)}
+                      {formatPrice(item.lineTotal, currency)}
                     </span>
                     <button
                       onClick={() => handleRemove(item.id)}
@@ -151,12 +154,18 @@ export default function CartPage() {
               </div>
             </div>
 
-            <Link
-              href="/checkout"
-              className="flex items-center justify-center gap-2 w-full py-4 bg-gold text-black font-black rounded-2xl hover:bg-gold/90 transition-colors text-sm"
-            >
-              Proceed to Checkout <ArrowRight className="w-4 h-4" />
-            </Link>
+            {view?.checkoutReady ? (
+              <Link
+                href="/checkout"
+                className="flex items-center justify-center gap-2 w-full py-4 bg-gold text-black font-black rounded-2xl hover:bg-gold/90 transition-colors text-sm"
+              >
+                Proceed to Checkout <ArrowRight className="w-4 h-4" />
+              </Link>
+            ) : (
+              <p className="text-center text-white/40 text-sm py-4">
+                Update the highlighted items to continue to checkout.
+              </p>
+            )}
           </>
         )}
       </div>
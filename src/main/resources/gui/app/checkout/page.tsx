@@ -6,9 +6,9 @@ import { motion } from 'framer-motion';
 import { MapPin, ArrowRight, ShieldCheck } from 'lucide-react';
 import { useShallow } from 'zustand/react/shallow';
 import { useAuthStore, useCurrencyStore } from '@/lib/store';
-import { cartApi, garmentApi, paymentApi } from '@/lib/api';
+import { cartApi, paymentApi } from '@/lib/api';
 import { formatPrice } from '@/lib/currency';
-import type { CartItem, Garment } from '@/types';
+import type { CartView } from '@/types';
 
 // Razorpay is loaded from CDN — declare window type
 declare global {
@@ -35,8 +35,7 @@ export default function CheckoutPage() {
   const user     = useAuthStore((s) => s.user);
   const currency = useCurrencyStore(useShallow((s) => ({ code: s.code, symbol: s.symbol, rate: s.rate })));
 
-  const [cart,     setCart]     = useState<CartItem[]>([]);
-  const [garments, setGarments] = useState<Record<number, Garment>>({});
+  const [cart,     setCart]     = useState<CartView | null>(null);
   const [loading,  setLoading]  = useState(true);
   const [paying,   setPaying]   = useState(false);
   const [error,    setError]    = useState('');
@@ -50,23 +49,18 @@ export default function CheckoutPage() {
 
   useEffect(() => {
     if (!user) { router.push('/auth/login'); return; }
-    Promise.all([cartApi.getMine(), garmentApi.getAll()])
-      .then(([cartRes, garmentRes]) => {
-        const items: CartItem[] = cartRes.data;
-        if (items.length === 0) { router.push('/cart'); return; }
-        setCart(items);
-        const map: Record<number, Garment> = {};
-        (garmentRes.data as Garment[]).forEach((g) => { map[g.id] = g; });
-        setGarments(map);
+    cartApi.getView()
+      .then((r) => {
+        const view: CartView = r.data;
+        // empty, or something needs fixing first (sold out / no longer sold) — back to the cart page
+        if (view.items.length === 0 || !view.checkoutReady) { router.push('/cart'); return; }
+        setCart(view);
       })
       .catch(() => setError('Failed to load cart.'))
       .finally(() => setLoading(false));
   }, [user, router]);
 
-  const total = cart.reduce(
-    (sum, item) => sum + (garments[item.garmentId]?.basePrice ?? 0) * item.quantity,
-    0,
-  );
+  const total = cart?.total ?? 0;
 
   const handlePay = async () => {
     if (!shippingName || !shippingAddress || !shippingCity || !shippingPincode || !shippingPhone) {
@@ -107,6 +101,12 @@ export default function CheckoutPage() {
             address: shippingAddress,
           },
           theme: { color: '#FFD700' },
+          modal: {
+            ondismiss: () => {
+              paymentApi.release(razorpayOrderId).catch(() => {});
+              reject(new Error('Payment cancelled.'));
+            },
+          },
 
           handler: async (response: { razorpay_payment_id: string; razorpay_order_id: string; razorpay_signature: string }) => {
             try {
@@ -130,8 +130,10 @@ export default function CheckoutPage() {
           },
         });
 
+        // Razorpay keeps the modal open so the shopper can retry within the same order —
+        // keep the stock hold; it is released on dismiss or when it expires
         rzp.on('payment.failed', () => {
-          reject(new Error('Payment was declined. Please try a different payment method.'));
+          setError('Payment was declined. Please try again or use a different payment method.');
         });
 
         rzp.open();
@@ -249,16 +251,15 @@ export default function CheckoutPage() {
               <h2 className="font-bold mb-5">Order Summary</h2>
 
               <div className="space-y-3 mb-5">
-                {cart.map((item) => {
-                  const g = garments[item.garmentId];
+                {(cart?.items ?? []).map((item) => {
                   return (
                     <div key={item.id} className="flex items-start justify-between gap-3 text-sm">
                       <div className="flex-1 min-w-0">
-                        <p className="font-medium truncate">{g?.name ?? `Garment #${item.garmentId}`}</p>
+                        <p className="font-medium truncate">{item.name ?? `Garment #${item.garmentId}`}</p>
                         <p className="text-white/40 text-xs">{item.size} × {item.quantity}</p>
                       </div>
                       <span className="text-gold font-bold shrink-0">
-                        {formatPrice((g?.basePrice ?? 0) * item.quantity, currency)}
+                        {formatPrice(item.lineTotal, currency)}
                       </span>
                     </div>
                   );
@@ -7,9 +7,9 @@ import { PackageCheck, ArrowRight, ChevronLeft, CheckCircle, MapPin, CreditCard,
 import Link from 'next/link';
 import { useShallow } from 'zustand/react/shallow';
 import { useAuthStore, useCurrencyStore } from '@/lib/store';
-import { orderApi, garmentApi } from '@/lib/api';
+import { orderApi } from '@/lib/api';
 import { formatPrice } from '@/lib/currency';
-import type { Order, OrderItem, Garment } from '@/types';
+import type { Order, OrderItem, OrderSummary, OrderHistoryPage } from '@/types';
 
 const STATUS_STYLES: Record<string, string> = {
   PLACED:     'bg-blue-500/20 text-blue-400 border-blue-500/20',
@@ -29,20 +29,17 @@ function OrderDetail({ orderId, justPlaced }: { orderId: number; justPlaced: boo
 
   const [order,    setOrder]    = useState<Order | null>(null);
   const [items,    setItems]    = useState<OrderItem[]>([]);
-  const [garments, setGarments] = useState<Record<number, Garment>>({});
   const [loading,  setLoading]  = useState(true);
   const [error,    setError]    = useState('');
 
   useEffect(() => {
     if (!user) { router.push('/auth/login'); return; }
-    Promise.all([orderApi.getById(orderId), garmentApi.getAll()])
-      .then(([orderRes, garmentRes]) => {
-        const data = orderRes.data as { order: Order; items: OrderItem[] };
+    // garment names come joined in — no need to load the catalog
+    orderApi.getById(orderId)
+      .then((res) => {
+        const data = res.data as { order: Order; items: OrderItem[] };
         setOrder(data.order);
         setItems(data.items);
-        const map: Record<number, Garment> = {};
-        (garmentRes.data as Garment[]).forEach((g) => { map[g.id] = g; });
-        setGarments(map);
       })
       .catch(() => setError('Failed to load order.'))
       .finally(() => setLoading(false));
@@ -137,12 +134,11 @@ function OrderDetail({ orderId, justPlaced }: { orderId: number; justPlaced: boo
         <h2 className="font-bold mb-4">Items</h2>
         <div className="space-y-4">
           {items.map((item) => {
-            const g = garments[item.garmentId];
             return (
               <div key={item.id} className="flex items-center gap-4">
                 <span className="text-3xl">👕</span>
                 <div className="flex-1 min-w-0">
-                  <p className="font-medium text-sm">{g?.name ?? `Garment #${item.garmentId}`}</p>
+                  <p className="font-medium text-sm">{item.garmentName ?? `Garment #${item.garmentId}`}</p>
                   <p className="text-white/40 text-xs mt-0.5">
                     Size: <span className="text-white/60">{item.size}</span>
                     {' · '}Qty: <span className="text-white/60">{item.quantity}</span>
@@ -221,18 +217,37 @@ function OrderList() {
   const user     = useAuthStore((s) => s.user);
   const currency = useCurrencyStore(useShallow((s) => ({ code: s.code, symbol: s.symbol, rate: s.rate })));
 
-  const [orders,  setOrders]  = useState<Order[]>([]);
-  const [loading, setLoading] = useState(true);
-  const [error,   setError]   = useState('');
+  const [orders,      setOrders]      = useState<OrderSummary[]>([]);
+  const [nextCursor,  setNextCursor]  = useState<string | null>(null);
+  const [loading,     setLoading]     = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [error,       setError]       = useState('');
 
   useEffect(() => {
     if (!user) { router.push('/auth/login'); return; }
-    orderApi.getMine()
-      .then((r) => setOrders(r.data))
+    orderApi.getHistory()
+      .then((r) => {
+        const page = r.data as OrderHistoryPage;
+        setOrders(page.items);
+        setNextCursor(page.nextCursor);
+      })
       .catch(() => setError('Failed to load orders.'))
       .finally(() => setLoading(false));
   }, [user, router]);
 
+  const loadMore = () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    orderApi.getHistory(nextCursor)
+      .then((r) => {
+        const page = r.data as OrderHistoryPage;
+        setOrders((prev) => [...prev, ...page.items]);
+        setNextCursor(page.nextCursor);
+      })
+      .catch(() => setError('Failed to load more orders.'))
+      .finally(() => setLoadingMore(false));
+  };
+
   if (loading) return <p className="text-white/30 text-center py-20">Loading…</p>;
 
   return (
@@ -275,6 +290,9 @@ function OrderList() {
               onClick={() => router.push(`/orders?id=${order.id}`)}
               className="w-full flex items-center gap-4 p-5 hover:bg-white/3 transition-colors group text-left"
             >
+              {order.thumbnailUrl
+                ? <img src={order.thumbnailUrl} alt="" className="w-12 h-12 rounded-lg object-cover shrink-0" />
+                : <span className="w-12 h-12 flex items-center justify-center text-2xl shrink-0">👕</span>}
               <div className="flex-1 min-w-0">
                 <div className="flex items-center gap-3 mb-1">
                   <span className="font-bold text-sm">Order #{order.id}</span>
@@ -286,7 +304,7 @@ function OrderList() {
                   {new Date(order.createdAt).toLocaleDateString('en-IN', {
                     day: 'numeric', month: 'long', year: 'numeric',
                   })}
-                  {order.shippingCity ? ` · ${order.shippingCity}` : ''}
+                  {` · ${order.itemCount} ${order.itemCount === 1 ? 'item' : 'items'}`}
                 </p>
               </div>
               <span className="text-gold font-black text-base">
@@ -297,6 +315,18 @@ function OrderList() {
           ))}
         </div>
       )}
+
+      {nextCursor && (
+        <div className="mt-6 text-center">
+          <button
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="px-6 py-2.5 border border-white/15 rounded-xl text-sm text-white/60 hover:text-white hover:border-white/30 transition-colors disabled:opacity-40"
+          >
+            {loadingMore ? 'Loading…' : 'Load more'}
+          </button>
+        </div>
+      )}
     </>
   );
 }
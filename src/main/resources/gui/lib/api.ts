@@ -1,4 +1,5 @@
 import axios from 'axios';
+import type { CartOperation } from '@/types';
 
 const api = axios.create({
   baseURL: '/api',
@@ -81,6 +82,8 @@ export const userApi = {
     gender: number;
   }) => api.post('/user/register', data),
   getAll: () => api.get('/user/getUserAll'),
+  exportAll: (format: 'ndjson' | 'csv' = 'csv') =>
+    api.get('/user/getUserAll/export', { params: { format }, responseType: 'blob' }),
   changeRole: (userId: number, role: number) =>
     api.put(`/admin/users/${userId}/role`, { role }),
 };
@@ -90,18 +93,46 @@ export const garmentApi = {
   getAll:      () => api.get('/garments'),
   shopAll:     () => api.get('/garments'),
   getFeatured: () => api.get('/garments/featured'),  // { mens:[], womens:[], kids:[] }
+  getHome:     () => api.get('/garments/home'),      // { mens, womens, kids, newArrivals, bestSellers, categories }
+  list: (params: {
+    categoryId?: number;
+    garmentType?: string;
+    color?: string;
+    size?: string;
+    minPrice?: number;
+    maxPrice?: number;
+    inStock?: boolean;
+    sort?: 'price_asc' | 'price_desc' | 'newest' | 'popular';
+    cursor?: string;
+    limit?: number;
+  }) => api.get('/garments/list', { params }),        // { items:[], nextCursor }
+  search: (q: string, limit = 20) =>
+    api.get('/garments/search', { params: { q, limit } }),  // { query, total, items:[] }
+  getFacets: (params: {
+    categoryId?: number;
+    garmentType?: string;
+    color?: string;
+    size?: string;
+    priceBand?: 'under-500' | '500-999' | '1000-1499' | '1500-1999' | '2000-plus';
+    inStock?: boolean;
+  }) => api.get('/garments/facets', { params }),      // { total, garmentType, category, color, size, priceBand, inStock }
+  getAvailability: (ids: number[]) =>
+    api.get('/garments/availability', { params: { ids: ids.join(',') } }),  // { [garmentId]: { [size]: units } }
   getById:     (id: number) => api.get(`/garments/${id}`),
 };
 
 // ── Cart ─────────────────────────────────────────────────────
 export const cartApi = {
   getMine: () => api.get('/user/cart'),
+  getView: () => api.get('/user/cart/view'),   // CartView — lines with garment, stock, flags and totals
   add: (garmentId: number, size: string, quantity = 1) =>
     api.post('/user/cart', { garmentId, size, quantity }),
   updateQty: (cartItemId: number, quantity: number) =>
     api.patch(`/user/cart/${cartItemId}?quantity=${quantity}`),
   remove: (cartItemId: number) =>
     api.delete(`/user/cart/${cartItemId}`),
+  batch: (operations: CartOperation[]) =>
+    api.post('/user/cart/batch', { operations }),   // applied in one transaction; returns CartView
 };
 
 // ── Checkout ──────────────────────────────────────────────────
@@ -114,12 +145,18 @@ export const checkoutApi = {
     shippingPhone: string;
     paymentMethod: string;
     paymentRef?: string;
-  }) => api.post('/user/checkout', payload),
+  }, idempotencyKey?: string) =>
+    // same key on a retry → the first order is returned instead of placing another
+    api.post('/user/checkout', payload,
+      idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined),
 };
 
 // ── Orders ────────────────────────────────────────────────────
 export const orderApi = {
   getMine: () => api.get('/user/orders'),
+  // keyset-paginated summaries, newest first — pass nextCursor back for the following page
+  getHistory: (cursor?: string, limit?: number) =>
+    api.get('/user/orders/history', { params: { cursor, limit } }),
   getById: (id: number) => api.get(`/user/orders/${id}`),
 };
 
@@ -154,16 +191,22 @@ export const categoryApi = {
   delete: (id: number) => api.delete(`/admin/categories/${id}`),
   create: (payload: { name: string; parentId?: number | null }) =>
     api.post('/admin/categories', payload),
+  getSubtree: (id: number) => api.get(`/admin/categories/${id}/subtree`),   // incl. hidden descendants
+  move: (id: number, payload: { parentId: number | null; displayOrder?: number }) =>
+    api.patch(`/admin/categories/${id}/move`, payload),
+  reorder: (parentId: number | null, orderedIds: number[]) =>
+    api.patch('/admin/categories/reorder', { parentId, orderedIds }),
 };
 
 // Public categories — no auth required (used in guest navbar)
 export const publicCategoryApi = {
   getActive: () => axios.get('/api/categories'),
+  getBreadcrumb: (id: number) => axios.get(`/api/categories/${id}/breadcrumb`),   // root → id
 };
 
 // ── Payment (Razorpay) ───────────────────────────────────────
 export const paymentApi = {
-  // Step 1: create a Razorpay order on the backend
+  // Step 1: create a Razorpay order on the backend (holds the cart's stock until verify or expiry)
   createOrder: (amountInPaise: number) =>
     api.post('/user/payment/create-order', { amountInPaise }),
   // Step 2: verify signature + place order + trigger Shiprocket
@@ -177,6 +220,9 @@ export const paymentApi = {
     shippingPincode: string;
     shippingPhone: string;
   }) => api.post('/user/payment/verify', payload),
+  // Payment failed / modal closed — give the held stock back right away
+  release: (razorpayOrderId: string) =>
+    api.post('/user/payment/release', { razorpayOrderId }),
 };
 
 // ── Image Upload (AWS S3) ─────────────────────────────────────
@@ -193,17 +239,24 @@ export const imageApi = {
 // ── Analytics ─────────────────────────────────────────────────
 export const analyticsApi = {
   getSummary: () => api.get('/admin/analytics/summary'),
+  getAbandonedCarts: () => api.get('/admin/analytics/abandoned-carts'),
+  exportSales: (format: 'ndjson' | 'csv' = 'csv') =>
+    api.get('/admin/analytics/export', { params: { format }, responseType: 'blob' }),
 };
 
 // ── Garment Admin ─────────────────────────────────────────────
 export const garmentAdminApi = {
   getAll: () => api.get('/admin/garments'),
   create: (payload: object) => api.post('/admin/garments', payload),
-  bulkCreate: (requests: object[]) => api.post('/admin/garments/bulk', requests),
+  exportAll: (format: 'ndjson' | 'csv' = 'csv') =>
+    api.get('/admin/garments/export', { params: { format }, responseType: 'blob' }),
+  bulkCreate: (requests: object[]) => api.post('/admin/garments/bulk', requests),   // { created: [...], errors: [{ index, error }] }
   update: (id: number, payload: object) => api.put(`/admin/garments/${id}`, payload),
   setActive: (id: number, active: boolean) =>
     api.patch(`/admin/garments/${id}/active?active=${active}`),
   setFeatured: (id: number, featured: boolean) =>
     api.patch(`/admin/garments/${id}/featured?featured=${featured}`),
   delete: (id: number) => api.delete(`/admin/garments/${id}`),
+  setSizeStock: (id: number, stockBySize: Record<string, number>) =>
+    api.put(`/admin/garments/${id}/stock`, stockBySize),   // { garmentId, stockQuantity, sizes }
 };
@@ -31,6 +31,7 @@ export interface Garment {
   costPrice?: number;
   active?: boolean;
   featured?: boolean;
+  version?: number;
 }
 
 export interface Category {
@@ -51,6 +52,35 @@ export interface CartItem {
   addedAt: string;
 }
 
+export interface CartLine {
+  id: number;
+  garmentId: number;
+  name: string | null;        // null when the garment is no longer sold
+  imageUrl: string | null;
+  size: string;
+  quantity: number;
+  unitPrice: number;          // current base price
+  priceAtAdd: number | null;  // base price when the line was added
+  lineTotal: number;
+  available: number;          // units in stock for this size
+  unavailable: boolean;
+  outOfStock: boolean;
+  priceChanged: boolean;
+}
+
+export interface CartView {
+  items: CartLine[];
+  itemCount: number;
+  total: number;
+  checkoutReady: boolean;
+}
+
+// One step of POST /user/cart/batch
+export type CartOperation =
+  | { op: 'add'; garmentId: number; size: string; quantity?: number }
+  | { op: 'set'; id: number; quantity: number }
+  | { op: 'remove'; id: number };
+
 export interface OrderItem {
   id: number;
   orderId: number;
@@ -58,6 +88,8 @@ export interface OrderItem {
   size: string;
   quantity: number;
   unitPrice: number;
+  garmentName?: string;
+  imageUrl?: string;
 }
 
 export interface Order {
@@ -76,6 +108,21 @@ export interface Order {
   createdAt: string;
 }
 
+export interface OrderSummary {
+  id: number;
+  createdAt: string;
+  totalAmount: number;
+  orderStatus: string;
+  paymentStatus: string;
+  itemCount: number;
+  thumbnailUrl?: string;
+}
+
+export interface OrderHistoryPage {
+  items: OrderSummary[];
+  nextCursor: string | null;
+}
+
 export interface SupportTicket {
   id: number;
   userId: number;
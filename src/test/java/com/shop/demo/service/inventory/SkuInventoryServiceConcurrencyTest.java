@@ -0,0 +1,204 @@
+package com.shop.demo.service.inventory;
+
+import com.shop.demo.database.repository.projectRepository.shop.GarmentRepository;
+import com.shop.demo.database.repository.projectRepository.shop.GarmentSkuRepository;
+import com.shop.demo.logMaintain.ApplicationLogger;
+import com.shop.demo.service.inventory.SkuInventoryService.SkuQuantity;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Many checkouts racing for the same SKUs against a real MySQL, with the
+ * driver flags production uses (rewriteBatchedStatements, allowMultiQueries)
+ * so the batched conditional UPDATE goes through Connector/J's multi-statement
+ * path whose per-statement counts sell() relies on.
+ *
+ * Orders span several garments and sizes and arrive with their lines in
+ * opposite orders: sell() must lock in its own fixed order (no deadlock),
+ * sell only what is in stock, and roll back a whole order when one line is short.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SkuInventoryServiceConcurrencyTest {
+
+    private static final List<Long> GARMENTS  = List.of(1L, 2L, 3L);
+    private static final List<String> SIZES   = List.of("S", "M", "L");
+    private static final int STOCK_PER_SKU    = 40;
+    private static final int BUYERS           = 200;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static SkuInventoryService skuInventoryService;
+
+    @BeforeAll
+    static void setUp() {
+        HikariConfig config = new HikariConfig();
+        String url = MYSQL.getJdbcUrl();
+        config.setJdbcUrl(url + (url.contains("?") ? "&" : "?") + "allowMultiQueries=true");
+        config.setUsername(MYSQL.getUsername());
+        config.setPassword(MYSQL.getPassword());
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.setMaximumPoolSize(32);
+        dataSource = new HikariDataSource(config);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new JdbcTransactionManager(dataSource));
+        skuInventoryService = new SkuInventoryService(
+                mock(GarmentSkuRepository.class),
+                mock(GarmentRepository.class),
+                jdbcTemplate,
+                transactionTemplate,
+                event -> {},
+                new ApplicationLogger());
+
+        // the columns sell() touches, as in project.sql
+        jdbcTemplate.execute("CREATE TABLE garments (" +
+                "id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL DEFAULT 0, units_sold INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE garment_skus (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, garment_id BIGINT NOT NULL, size VARCHAR(10) NOT NULL, " +
+                "stock_quantity INT NOT NULL DEFAULT 0, UNIQUE KEY uq_garment_sku (garment_id, size))");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    @BeforeEach
+    void resetStock() {
+        jdbcTemplate.update("DELETE FROM garment_skus");
+        jdbcTemplate.update("DELETE FROM garments");
+        for (Long garmentId : GARMENTS) {
+            jdbcTemplate.update("INSERT INTO garments (id, stock_quantity, units_sold) VALUES (?, ?, 0)",
+                    garmentId, STOCK_PER_SKU * SIZES.size());
+            for (String size : SIZES) {
+                jdbcTemplate.update("INSERT INTO garment_skus (garment_id, size, stock_quantity) VALUES (?, ?, ?)",
+                        garmentId, size, STOCK_PER_SKU);
+            }
+        }
+    }
+
+    @Test
+    void sellsExactlyTheStockWhenEveryOrderTakesOneOfEachSku() throws Exception {
+        List<List<SkuQuantity>> orders = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            List<SkuQuantity> lines = new ArrayList<>();
+            for (Long garmentId : GARMENTS) {
+                for (String size : SIZES) lines.add(new SkuQuantity(garmentId, size, 1));
+            }
+            if (i % 2 == 1) Collections.reverse(lines);
+            orders.add(lines);
+        }
+
+        Map<String, Integer> sold = race(orders);
+
+        for (Long garmentId : GARMENTS) {
+            for (String size : SIZES) assertEquals(STOCK_PER_SKU, sold.getOrDefault(key(garmentId, size), 0));
+        }
+        assertStock(sold);
+    }
+
+    @Test
+    void oppositeLineOrdersNeitherDeadlockNorOversell() throws Exception {
+        Random random = new Random(42);
+        List<List<SkuQuantity>> orders = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            // 6 or 9 lines over all three garments, 1–3 units each
+            List<SkuQuantity> lines = new ArrayList<>();
+            for (Long garmentId : GARMENTS) {
+                List<String> sizes = new ArrayList<>(SIZES);
+                Collections.shuffle(sizes, random);
+                int count = i % 3 == 0 ? SIZES.size() : 2;
+                for (int s = 0; s < count; s++) lines.add(new SkuQuantity(garmentId, sizes.get(s), 1 + random.nextInt(3)));
+            }
+            lines.sort(Comparator.comparing(SkuQuantity::garmentId).thenComparing(SkuQuantity::size));
+            if (i % 2 == 1) Collections.reverse(lines);
+            orders.add(lines);
+        }
+
+        Map<String, Integer> sold = race(orders);
+
+        for (int units : sold.values()) assertTrue(units <= STOCK_PER_SKU, "sold " + units + " of " + STOCK_PER_SKU);
+        assertStock(sold);
+    }
+
+    /**
+     * Every buyer checks out at once, each order in its own transaction.
+     * Returns units sold per SKU, counted from the orders that committed;
+     * anything but OutOfStockException (a deadlock, a lock timeout) fails the test.
+     */
+    private Map<String, Integer> race(List<List<SkuQuantity>> orders) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Integer> sold = new ConcurrentHashMap<>();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> buyers = new ArrayList<>(orders.size());
+        try {
+            for (List<SkuQuantity> lines : orders) {
+                buyers.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> skuInventoryService.sell(lines));
+                        for (SkuQuantity l : lines) sold.merge(key(l.garmentId(), l.size()), l.quantity(), Integer::sum);
+                    } catch (OutOfStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : buyers) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(rejected.get() > 0, "expected some orders to find a size sold out");
+        return sold;
+    }
+
+    /** Each SKU lost exactly what committed orders bought, and garment totals follow their SKUs */
+    private void assertStock(Map<String, Integer> sold) {
+        for (Long garmentId : GARMENTS) {
+            int garmentSold = 0;
+            for (String size : SIZES) {
+                int units = sold.getOrDefault(key(garmentId, size), 0);
+                garmentSold += units;
+                Integer left = jdbcTemplate.queryForObject(
+                        "SELECT stock_quantity FROM garment_skus WHERE garment_id = ? AND size = ?",
+                        Integer.class, garmentId, size);
+                assertEquals(STOCK_PER_SKU - units, left, "garment " + garmentId + " size " + size);
+                assertTrue(left >= 0);
+            }
+            Integer stock = jdbcTemplate.queryForObject(
+                    "SELECT stock_quantity FROM garments WHERE id = ?", Integer.class, garmentId);
+            Integer unitsSold = jdbcTemplate.queryForObject(
+                    "SELECT units_sold FROM garments WHERE id = ?", Integer.class, garmentId);
+            assertEquals(STOCK_PER_SKU * SIZES.size() - garmentSold, stock);
+            assertEquals(garmentSold, unitsSold);
+        }
+    }
+
+    private static String key(Long garmentId, String size) {
+        return garmentId + "|" + size;
+    }
+}